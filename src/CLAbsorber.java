@@ -26,6 +26,12 @@ public class CLAbsorber {
     /** Name of the class that is read. */
     private String className;
 
+    /**
+     * Whether the attributes (of the class and its members) are to be skipped
+     * rather than read.
+     */
+    private boolean skipAttributes;
+
     /**
      * Print the specified warning to STDERR.
      * 
@@ -108,6 +114,24 @@ public class CLAbsorber {
                     cp.addCPItem(new CLConstantNameAndTypeInfo(in
                             .readUnsignedShort(), in.readUnsignedShort()));
                     break;
+                case CONSTANT_MethodHandle:
+                    cp.addCPItem(new CLConstantMethodHandleInfo((short) in
+                            .readUnsignedByte(), in.readUnsignedShort()));
+                    break;
+                case CONSTANT_MethodType:
+                    cp.addCPItem(new CLConstantMethodTypeInfo(in
+                            .readUnsignedShort()));
+                    break;
+                case CONSTANT_Dynamic:
+                case CONSTANT_InvokeDynamic:
+                    cp.addCPItem(new CLConstantDynamicInfo((short) tag, in
+                            .readUnsignedShort(), in.readUnsignedShort()));
+                    break;
+                case CONSTANT_Module:
+                case CONSTANT_Package:
+                    cp.addCPItem(new CLConstantModuleInfo((short) tag, in
+                            .readUnsignedShort()));
+                    break;
                 case CONSTANT_Utf8:
                     int length = in.readUnsignedShort();
                     byte[] b = new byte[length];
@@ -200,6 +224,10 @@ public class CLAbsorber {
             for (int i = 0; i < attributesCount; i++) {
                 int attributeNameIndex = in.readUnsignedShort();
                 long attributeLength = in.readUnsignedInt();
+                if (skipAttributes) {
+                    in.skipBytes((int) attributeLength);
+                    continue;
+                }
                 CLAttributeInfo attributeInfo = null;
                 String attributeName = new String(((CLConstantUtf8Info) cp
                         .cpItem(attributeNameIndex)).b);
@@ -913,15 +941,49 @@ public class CLAbsorber {
      */
 
     public CLAbsorber(String className) {
+        this.className = className;
+        CLInputStream in = CLPath.shared().loadClass(className);
+        errorHasOccurred = false;
+        if (in == null) {
+            reportError("Error loading %s", className);
+            return;
+        }
+        read(in);
+    }
+
+    /**
+     * Construct a CLAbsorber object given the (fully-qualified) name of a class
+     * and a stream from which to read its class file. If skipAttributes is
+     * true, the attributes of the class and of its members (their code, among
+     * others) are skipped, leaving just the headers of the class and its
+     * members.
+     * 
+     * @param className
+     *            fully qualified name of the class.
+     * @param in
+     *            stream from which to read the class file.
+     * @param skipAttributes
+     *            whether to skip the attributes.
+     */
+
+    public CLAbsorber(String className, CLInputStream in,
+            boolean skipAttributes) {
+        this.className = className;
+        this.skipAttributes = skipAttributes;
+        errorHasOccurred = false;
+        read(in);
+    }
+
+    /**
+     * Read a class file from the specified stream into an in-memory CLFile
+     * representation.
+     * 
+     * @param in
+     *            stream from which to read the class file.
+     */
+
+    private void read(CLInputStream in) {
         try {
-            this.className = className;
-            CLPath classPath = new CLPath();
-            CLInputStream in = classPath.loadClass(className);
-            errorHasOccurred = false;
-            if (in == null) {
-                reportError("Error loading %s", className);
-                return;
-            }
             classFile = new CLFile();
 
             // Read magic number (0xCAFEBABE)
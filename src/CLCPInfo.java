@@ -4,6 +4,7 @@ package jminusminus;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import static jminusminus.CLConstants.*;
 
 /**
@@ -99,6 +100,14 @@ class CLConstantClassInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return tag * 31 + nameIndex;
+    }
+
     /**
      * @inheritDoc
      */
@@ -166,6 +175,14 @@ abstract class CLConstantMemberRefInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return (tag * 31 + classIndex) * 31 + nameAndTypeIndex;
+    }
+
 }
 
 /**
@@ -304,6 +321,14 @@ class CLConstantStringInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return tag * 31 + stringIndex;
+    }
+
     /**
      * @inheritDoc
      */
@@ -380,6 +405,14 @@ class CLConstantIntegerInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return tag * 31 + i;
+    }
+
     /**
      * @inheritDoc
      */
@@ -452,6 +485,15 @@ class CLConstantFloatInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        // 0.0f and -0.0f are equal under ==, so they must hash alike.
+        return tag * 31 + (f == 0.0f ? 0 : Float.floatToIntBits(f));
+    }
+
     /**
      * @inheritDoc
      */
@@ -556,6 +598,14 @@ class CLConstantLongInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return tag * 31 + (int) (l ^ (l >>> 32));
+    }
+
     /**
      * @inheritDoc
      */
@@ -660,6 +710,16 @@ class CLConstantDoubleInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        // 0.0 and -0.0 are equal under ==, so they must hash alike.
+        long bits = (d == 0.0) ? 0L : Double.doubleToLongBits(d);
+        return tag * 31 + (int) (bits ^ (bits >>> 32));
+    }
+
     /**
      * @inheritDoc
      */
@@ -724,6 +784,14 @@ class CLConstantNameAndTypeInfo extends CLCPInfo {
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return (tag * 31 + nameIndex) * 31 + descriptorIndex;
+    }
+
     /**
      * @inheritDoc
      */
@@ -735,6 +803,287 @@ class CLConstantNameAndTypeInfo extends CLCPInfo {
 
 }
 
+/**
+ * Representation of CONSTANT_MethodHandle_info structure (JVM Spec Section
+ * 4.4.8).
+ */
+
+class CLConstantMethodHandleInfo extends CLCPInfo {
+
+    /** CONSTANT_MethodHandle_info.reference_kind item. */
+    public short referenceKind;
+
+    /** CONSTANT_MethodHandle_info.reference_index item. */
+    public int referenceIndex;
+
+    /**
+     * Construct a CLConstantMethodHandleInfo object.
+     * 
+     * @param referenceKind
+     *            CONSTANT_MethodHandle_info.reference_kind item.
+     * @param referenceIndex
+     *            CONSTANT_MethodHandle_info.reference_index item.
+     */
+
+    public CLConstantMethodHandleInfo(short referenceKind, int referenceIndex) {
+        super.tag = CONSTANT_MethodHandle;
+        this.referenceKind = referenceKind;
+        this.referenceIndex = referenceIndex;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void write(CLOutputStream out) throws IOException {
+        super.write(out);
+        out.writeByte(referenceKind);
+        out.writeShort(referenceIndex);
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public boolean equals(Object obj) {
+        if (obj instanceof CLConstantMethodHandleInfo) {
+            CLConstantMethodHandleInfo c = (CLConstantMethodHandleInfo) obj;
+            if ((c.referenceKind == referenceKind)
+                    && (c.referenceIndex == referenceIndex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return (tag * 31 + referenceKind) * 31 + referenceIndex;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void writeToStdOut(PrettyPrinter p) {
+        super.writeToStdOut(p);
+        p.printf("%-20s%-8s%-8s\n", "MethodHandle", referenceKind,
+                referenceIndex);
+    }
+
+}
+
+/**
+ * Representation of CONSTANT_MethodType_info structure (JVM Spec Section
+ * 4.4.9).
+ */
+
+class CLConstantMethodTypeInfo extends CLCPInfo {
+
+    /** CONSTANT_MethodType_info.descriptor_index item. */
+    public int descriptorIndex;
+
+    /**
+     * Construct a CLConstantMethodTypeInfo object.
+     * 
+     * @param descriptorIndex
+     *            CONSTANT_MethodType_info.descriptor_index item.
+     */
+
+    public CLConstantMethodTypeInfo(int descriptorIndex) {
+        super.tag = CONSTANT_MethodType;
+        this.descriptorIndex = descriptorIndex;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void write(CLOutputStream out) throws IOException {
+        super.write(out);
+        out.writeShort(descriptorIndex);
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public boolean equals(Object obj) {
+        if (obj instanceof CLConstantMethodTypeInfo) {
+            CLConstantMethodTypeInfo c = (CLConstantMethodTypeInfo) obj;
+            if (c.descriptorIndex == descriptorIndex) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return tag * 31 + descriptorIndex;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void writeToStdOut(PrettyPrinter p) {
+        super.writeToStdOut(p);
+        p.printf("%-20s%s\n", "MethodType", descriptorIndex);
+    }
+
+}
+
+/**
+ * Representation of CONSTANT_Dynamic_info and CONSTANT_InvokeDynamic_info
+ * structures (JVM Spec Section 4.4.10), which differ only in their tags.
+ */
+
+class CLConstantDynamicInfo extends CLCPInfo {
+
+    /** bootstrap_method_attr_index item. */
+    public int bootstrapMethodAttrIndex;
+
+    /** name_and_type_index item. */
+    public int nameAndTypeIndex;
+
+    /**
+     * Construct a CLConstantDynamicInfo object.
+     * 
+     * @param tag
+     *            CONSTANT_Dynamic or CONSTANT_InvokeDynamic.
+     * @param bootstrapMethodAttrIndex
+     *            bootstrap_method_attr_index item.
+     * @param nameAndTypeIndex
+     *            name_and_type_index item.
+     */
+
+    public CLConstantDynamicInfo(short tag, int bootstrapMethodAttrIndex,
+            int nameAndTypeIndex) {
+        super.tag = tag;
+        this.bootstrapMethodAttrIndex = bootstrapMethodAttrIndex;
+        this.nameAndTypeIndex = nameAndTypeIndex;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void write(CLOutputStream out) throws IOException {
+        super.write(out);
+        out.writeShort(bootstrapMethodAttrIndex);
+        out.writeShort(nameAndTypeIndex);
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public boolean equals(Object obj) {
+        if (obj instanceof CLConstantDynamicInfo) {
+            CLConstantDynamicInfo c = (CLConstantDynamicInfo) obj;
+            if ((c.tag == tag)
+                    && (c.bootstrapMethodAttrIndex == bootstrapMethodAttrIndex)
+                    && (c.nameAndTypeIndex == nameAndTypeIndex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return (tag * 31 + bootstrapMethodAttrIndex) * 31 + nameAndTypeIndex;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void writeToStdOut(PrettyPrinter p) {
+        super.writeToStdOut(p);
+        p.printf("%-20s%-8s%-8s\n", tag == CONSTANT_Dynamic ? "Dynamic"
+                : "InvokeDynamic", bootstrapMethodAttrIndex, nameAndTypeIndex);
+    }
+
+}
+
+/**
+ * Representation of CONSTANT_Module_info and CONSTANT_Package_info structures
+ * (JVM Spec Sections 4.4.11 and 4.4.12), which differ only in their tags.
+ */
+
+class CLConstantModuleInfo extends CLCPInfo {
+
+    /** name_index item. */
+    public int nameIndex;
+
+    /**
+     * Construct a CLConstantModuleInfo object.
+     * 
+     * @param tag
+     *            CONSTANT_Module or CONSTANT_Package.
+     * @param nameIndex
+     *            name_index item.
+     */
+
+    public CLConstantModuleInfo(short tag, int nameIndex) {
+        super.tag = tag;
+        this.nameIndex = nameIndex;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void write(CLOutputStream out) throws IOException {
+        super.write(out);
+        out.writeShort(nameIndex);
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public boolean equals(Object obj) {
+        if (obj instanceof CLConstantModuleInfo) {
+            CLConstantModuleInfo c = (CLConstantModuleInfo) obj;
+            if ((c.tag == tag) && (c.nameIndex == nameIndex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return tag * 31 + nameIndex;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void writeToStdOut(PrettyPrinter p) {
+        super.writeToStdOut(p);
+        p.printf("%-20s%s\n", tag == CONSTANT_Module ? "Module" : "Package",
+                nameIndex);
+    }
+
+}
+
 /**
  * Representation of CONSTANT_Utf8_info structure (JVM Spec Section 4.5.7).
  */
@@ -782,13 +1131,21 @@ class CLConstantUtf8Info extends CLCPInfo {
     public boolean equals(Object obj) {
         if (obj instanceof CLConstantUtf8Info) {
             CLConstantUtf8Info c = (CLConstantUtf8Info) obj;
-            if ((new String(b)).equals(new String(c.b))) {
+            if (Arrays.equals(b, c.b)) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public int hashCode() {
+        return tag * 31 + Arrays.hashCode(b);
+    }
+
     /**
      * @inheritDoc
      */
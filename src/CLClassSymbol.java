@@ -0,0 +1,856 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import static jminusminus.CLConstants.*;
+
+/**
+ * A lightweight representation of a class (or interface, array or primitive
+ * type) for the purposes of analysis: its name, access flags, super types and
+ * the headers of its members. Symbols for classes are built from their class
+ * files (read with CLAbsorber) for classes on the class path, and from the
+ * member headers in the AST for (partial) classes being compiled, so that
+ * analysis never needs to load, link or initialize a class in the JVM.
+ * 
+ * Symbols are obtained from a CLSymbolTable, which makes sure there is a single
+ * symbol for each class; super types and the types in member descriptors are
+ * resolved through the same table, as they are needed.
+ */
+
+class CLClassSymbol {
+
+    /** The primitive type, int. */
+    public static final CLClassSymbol INT = new CLClassSymbol("I", "int");
+
+    /** The primitive type, char. */
+    public static final CLClassSymbol CHAR = new CLClassSymbol("C", "char");
+
+    /** The primitive type, double. */
+    public static final CLClassSymbol DOUBLE = new CLClassSymbol("D",
+            "double");
+
+    /** The primitive type, boolean. */
+    public static final CLClassSymbol BOOLEAN = new CLClassSymbol("Z",
+            "boolean");
+
+    /** The primitive type, byte. */
+    public static final CLClassSymbol BYTE = new CLClassSymbol("B", "byte");
+
+    /** The primitive type, short. */
+    public static final CLClassSymbol SHORT = new CLClassSymbol("S", "short");
+
+    /** The primitive type, long. */
+    public static final CLClassSymbol LONG = new CLClassSymbol("J", "long");
+
+    /** The primitive type, float. */
+    public static final CLClassSymbol FLOAT = new CLClassSymbol("F", "float");
+
+    /** The void type. */
+    public static final CLClassSymbol VOID = new CLClassSymbol("V", "void");
+
+    /** The table through which this symbol's references are resolved. */
+    private CLSymbolTable table;
+
+    /**
+     * Internal form of the name (eg, java/lang/String) for classes; the
+     * descriptor for arrays and primitive types.
+     */
+    private String name;
+
+    /** Java name of a primitive type (eg, int); null otherwise. */
+    private String primitiveName;
+
+    /** Component type of an array type; null otherwise. */
+    private CLClassSymbol componentType;
+
+    /** Access permissions and properties. */
+    private int accessFlags;
+
+    /** Internal form of the name of the super class, or null. */
+    private String superName;
+
+    /** Internal forms of the names of the interfaces implemented. */
+    private ArrayList<String> interfaceNames;
+
+    /** Fields declared in the class. */
+    private ArrayList<CLMemberSymbol> fields;
+
+    /** Methods declared in the class (constructors excluded). */
+    private ArrayList<CLMemberSymbol> methods;
+
+    /** Constructors declared in the class. */
+    private ArrayList<CLMemberSymbol> constructors;
+
+    /** Symbol for the array type having this component type. */
+    private volatile CLClassSymbol arrayType;
+
+    /**
+     * Construct a symbol for a primitive type.
+     * 
+     * @param descriptor
+     *            the type's descriptor.
+     * @param primitiveName
+     *            the type's Java name.
+     */
+
+    private CLClassSymbol(String descriptor, String primitiveName) {
+        this.name = descriptor;
+        this.primitiveName = primitiveName;
+        this.accessFlags = ACC_PUBLIC | ACC_FINAL | ACC_ABSTRACT;
+        this.interfaceNames = new ArrayList<String>();
+        this.fields = new ArrayList<CLMemberSymbol>();
+        this.methods = new ArrayList<CLMemberSymbol>();
+        this.constructors = new ArrayList<CLMemberSymbol>();
+    }
+
+    /**
+     * Construct a symbol for an array type. Use arrayType() -- that maps like
+     * component types to like array symbols.
+     * 
+     * @param componentType
+     *            the component type.
+     */
+
+    private CLClassSymbol(CLClassSymbol componentType) {
+        this("[" + componentType.descriptor(), (String) null);
+        this.table = componentType.isPrimitive() ? CLSymbolTable.LIBRARY
+                : componentType.table;
+        this.componentType = componentType;
+        this.interfaceNames.add("java/lang/Cloneable");
+        this.interfaceNames.add("java/io/Serializable");
+    }
+
+    /**
+     * Construct a symbol for a class that could not be found, so that the
+     * references to it may still be represented. It has no members.
+     * 
+     * @param name
+     *            internal form of the class name.
+     * @param table
+     *            table through which references are resolved.
+     */
+
+    public CLClassSymbol(String name, CLSymbolTable table) {
+        this(name, (String) null);
+        this.table = table;
+        this.accessFlags = ACC_PUBLIC;
+    }
+
+    /**
+     * Construct a symbol for a (partial) class being compiled, with no members
+     * as yet. The member headers are added with addField() and addMethod(), as
+     * the class declaration is pre-analyzed.
+     * 
+     * @param accessFlags
+     *            the access flags for the class.
+     * @param name
+     *            internal form of the class name.
+     * @param superName
+     *            internal form of the name of the super class.
+     * @param table
+     *            table through which references are resolved.
+     */
+
+    public CLClassSymbol(ArrayList<String> accessFlags, String name,
+            String superName, CLSymbolTable table) {
+        this(name, (String) null);
+        this.table = table;
+        this.accessFlags = accessFlagsToInt(accessFlags);
+        this.superName = superName;
+    }
+
+    /**
+     * Construct a symbol for the class in the specified class file.
+     * 
+     * @param clFile
+     *            the class file.
+     * @param table
+     *            table through which references are resolved.
+     */
+
+    public CLClassSymbol(CLFile clFile, CLSymbolTable table) {
+        CLConstantPool cp = clFile.constantPool;
+        this.table = table;
+        this.name = className(cp, clFile.thisClass);
+        this.accessFlags = clFile.accessFlags;
+        this.superName = clFile.superClass == 0 ? null : className(cp,
+                clFile.superClass);
+        this.interfaceNames = new ArrayList<String>();
+        for (int index : clFile.interfaces) {
+            interfaceNames.add(className(cp, index));
+        }
+        this.fields = new ArrayList<CLMemberSymbol>();
+        for (CLFieldInfo field : clFile.fields) {
+            fields.add(new CLMemberSymbol(this, field.accessFlags, utf8(cp,
+                    field.nameIndex), utf8(cp, field.descriptorIndex)));
+        }
+        this.methods = new ArrayList<CLMemberSymbol>();
+        this.constructors = new ArrayList<CLMemberSymbol>();
+        for (CLMethodInfo method : clFile.methods) {
+            String methodName = utf8(cp, method.nameIndex);
+            CLMemberSymbol symbol = new CLMemberSymbol(this,
+                    method.accessFlags, methodName, utf8(cp,
+                            method.descriptorIndex));
+            if (methodName.equals("<init>")) {
+                constructors.add(symbol);
+            } else if (!methodName.equals("<clinit>")) {
+                methods.add(symbol);
+            }
+        }
+    }
+
+    /**
+     * Return the table through which this symbol's references are resolved.
+     * 
+     * @return the symbol table.
+     */
+
+    public CLSymbolTable table() {
+        return table;
+    }
+
+    /**
+     * Return the JVM descriptor for this type. Eg, Ljava/lang/String; for
+     * java.lang.String, [[Z for boolean[][].
+     * 
+     * @return the descriptor.
+     */
+
+    public String descriptor() {
+        return isArray() || isPrimitive() ? name : "L" + name + ";";
+    }
+
+    /**
+     * Return the internal form of the name of a class. Eg, java/lang/String.
+     * 
+     * @return the name in internal form.
+     */
+
+    public String internalName() {
+        return name;
+    }
+
+    /**
+     * Return the Java name of a class or primitive type. Eg, java.lang.String,
+     * int.
+     * 
+     * @return the Java name.
+     */
+
+    public String javaName() {
+        return isPrimitive() ? primitiveName : name.replace('/', '.');
+    }
+
+    /**
+     * Return the simple name of this type. Eg, String for java.lang.String,
+     * int[] for int[].
+     * 
+     * @return the simple name.
+     */
+
+    public String simpleName() {
+        if (isArray()) {
+            return componentType.simpleName() + "[]";
+        }
+        String javaName = javaName();
+        return javaName.substring(Math.max(javaName.lastIndexOf('.'),
+                javaName.lastIndexOf('$')) + 1);
+    }
+
+    /**
+     * Return the name of the package of a class. Eg, java.lang for
+     * java.lang.String; "" for array and primitive types.
+     * 
+     * @return the package name.
+     */
+
+    public String packageName() {
+        return isArray() || isPrimitive() || name.lastIndexOf('/') == -1 ? ""
+                : name.substring(0, name.lastIndexOf('/')).replace('/', '.');
+    }
+
+    /**
+     * Return the access permissions and properties of this type.
+     * 
+     * @return the access flags.
+     */
+
+    public int accessFlags() {
+        return accessFlags;
+    }
+
+    /**
+     * Is this an array type?
+     * 
+     * @return true or false.
+     */
+
+    public boolean isArray() {
+        return componentType != null;
+    }
+
+    /**
+     * Is this a primitive type (or void)?
+     * 
+     * @return true or false.
+     */
+
+    public boolean isPrimitive() {
+        return primitiveName != null;
+    }
+
+    /**
+     * Is this an interface?
+     * 
+     * @return true or false.
+     */
+
+    public boolean isInterface() {
+        return (accessFlags & ACC_INTERFACE) != 0;
+    }
+
+    /**
+     * Return the component type of an array type; null otherwise.
+     * 
+     * @return the component type.
+     */
+
+    public CLClassSymbol componentType() {
+        return componentType;
+    }
+
+    /**
+     * Return the array type having this component type.
+     * 
+     * @return the array type.
+     */
+
+    public CLClassSymbol arrayType() {
+        if (arrayType == null) {
+            synchronized (this) {
+                if (arrayType == null) {
+                    arrayType = new CLClassSymbol(this);
+                }
+            }
+        }
+        return arrayType;
+    }
+
+    /**
+     * Return the super class of this type, or null if it has none. As with
+     * reflection, interfaces, primitive types and java.lang.Object have no
+     * super class, and that of array types is java.lang.Object.
+     * 
+     * @return the super class, or null.
+     */
+
+    public CLClassSymbol superClass() {
+        if (isArray()) {
+            return table.lookup("java/lang/Object");
+        }
+        return superName == null || isInterface() ? null : table
+                .symbolFor("L" + superName + ";");
+    }
+
+    /**
+     * Return the interfaces implemented by this type.
+     * 
+     * @return the interfaces.
+     */
+
+    public ArrayList<CLClassSymbol> interfaces() {
+        ArrayList<CLClassSymbol> interfaces = new ArrayList<CLClassSymbol>();
+        for (String interfaceName : interfaceNames) {
+            interfaces.add(table.symbolFor("L" + interfaceName + ";"));
+        }
+        return interfaces;
+    }
+
+    /**
+     * Return the fields declared in this class.
+     * 
+     * @return the declared fields.
+     */
+
+    public ArrayList<CLMemberSymbol> declaredFields() {
+        return fields;
+    }
+
+    /**
+     * Return the methods declared in this class, constructors and static
+     * initializers excluded.
+     * 
+     * @return the declared methods.
+     */
+
+    public ArrayList<CLMemberSymbol> declaredMethods() {
+        return methods;
+    }
+
+    /**
+     * Return the constructors declared in this class.
+     * 
+     * @return the declared constructors.
+     */
+
+    public ArrayList<CLMemberSymbol> declaredConstructors() {
+        return constructors;
+    }
+
+    /**
+     * Add the header of a field to this (partial) class.
+     * 
+     * @param accessFlags
+     *            access flags for the field.
+     * @param name
+     *            name of the field.
+     * @param descriptor
+     *            type descriptor of the field.
+     */
+
+    public void addField(ArrayList<String> accessFlags, String name,
+            String descriptor) {
+        fields.add(new CLMemberSymbol(this, accessFlagsToInt(accessFlags),
+                name, descriptor));
+    }
+
+    /**
+     * Add the header of a method (or, if the name is <init>, a constructor) to
+     * this (partial) class.
+     * 
+     * @param accessFlags
+     *            access flags for the method.
+     * @param name
+     *            name of the method.
+     * @param descriptor
+     *            type descriptor of the method.
+     */
+
+    public void addMethod(ArrayList<String> accessFlags, String name,
+            String descriptor) {
+        CLMemberSymbol symbol = new CLMemberSymbol(this,
+                accessFlagsToInt(accessFlags), name, descriptor);
+        if (name.equals("<init>")) {
+            constructors.add(symbol);
+        } else {
+            methods.add(symbol);
+        }
+    }
+
+    /**
+     * Is this type the same as, or a super type of, that type? This follows
+     * Class.isAssignableFrom().
+     * 
+     * @param that
+     *            the candidate sub type.
+     * @return true or false.
+     */
+
+    public boolean isAssignableFrom(CLClassSymbol that) {
+        if (this == that || this.descriptor().equals(that.descriptor())) {
+            return true;
+        }
+        if (this.isPrimitive() || that.isPrimitive()) {
+            return false;
+        }
+        if (this.isArray() && that.isArray()) {
+            return this.componentType.isAssignableFrom(that.componentType);
+        }
+        if (this.isArray()) {
+            return false;
+        }
+        if (name.equals("java/lang/Object")) {
+            return true;
+        }
+        CLClassSymbol superClass = that.superClass();
+        if (superClass != null && isAssignableFrom(superClass)) {
+            return true;
+        }
+        for (CLClassSymbol implemented : that.interfaces()) {
+            if (isAssignableFrom(implemented)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the integer value (mask) of the specified access flags.
+     * 
+     * @param accessFlags
+     *            the access flags, eg, public, static.
+     * @return the mask.
+     */
+
+    private static int accessFlagsToInt(ArrayList<String> accessFlags) {
+        int flags = 0;
+        if (accessFlags != null) {
+            for (String accessFlag : accessFlags) {
+                flags |= CLFile.accessFlagToInt(accessFlag);
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * Return the name (in internal form) of the class at the specified index
+     * of the specified constant pool.
+     * 
+     * @param cp
+     *            the constant pool.
+     * @param index
+     *            index of a CONSTANT_Class_info item.
+     * @return the class name.
+     */
+
+    private static String className(CLConstantPool cp, int index) {
+        return utf8(cp, ((CLConstantClassInfo) cp.cpItem(index)).nameIndex);
+    }
+
+    /**
+     * Return the string at the specified index of the specified constant pool.
+     * 
+     * @param cp
+     *            the constant pool.
+     * @param index
+     *            index of a CONSTANT_Utf8_info item.
+     * @return the string.
+     */
+
+    private static String utf8(CLConstantPool cp, int index) {
+        return new String(((CLConstantUtf8Info) cp.cpItem(index)).b);
+    }
+
+}
+
+/**
+ * The header of a field, method or constructor of a class: its name, access
+ * flags and descriptor. The types in the descriptor are resolved (through the
+ * table of the declaring class) the first time they are needed.
+ */
+
+class CLMemberSymbol {
+
+    /** The class declaring this member. */
+    private CLClassSymbol declaringClass;
+
+    /** Access permissions and properties. */
+    private int accessFlags;
+
+    /** The member's name. */
+    private String name;
+
+    /** The member's descriptor. */
+    private String descriptor;
+
+    /** Types of the parameters (of a method or constructor). */
+    private volatile CLClassSymbol[] parameterTypes;
+
+    /**
+     * Construct a CLMemberSymbol.
+     * 
+     * @param declaringClass
+     *            the class declaring this member.
+     * @param accessFlags
+     *            access permissions and properties.
+     * @param name
+     *            the member's name.
+     * @param descriptor
+     *            the member's descriptor.
+     */
+
+    public CLMemberSymbol(CLClassSymbol declaringClass, int accessFlags,
+            String name, String descriptor) {
+        this.declaringClass = declaringClass;
+        this.accessFlags = accessFlags;
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    /**
+     * Return the class declaring this member.
+     * 
+     * @return the declaring class.
+     */
+
+    public CLClassSymbol declaringClass() {
+        return declaringClass;
+    }
+
+    /**
+     * Return the access permissions and properties of this member.
+     * 
+     * @return the access flags.
+     */
+
+    public int accessFlags() {
+        return accessFlags;
+    }
+
+    /**
+     * Return the member's name.
+     * 
+     * @return the name.
+     */
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Return the member's descriptor.
+     * 
+     * @return the descriptor.
+     */
+
+    public String descriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Return the parenthesized parameter descriptors of a method or
+     * constructor. Eg, (ILjava/lang/String;) for (ILjava/lang/String;)V.
+     * 
+     * @return the argument descriptor.
+     */
+
+    public String argumentDescriptor() {
+        return descriptor.substring(0, descriptor.indexOf(')') + 1);
+    }
+
+    /**
+     * Return the types of the parameters of a method or constructor.
+     * 
+     * @return the parameter types.
+     */
+
+    public CLClassSymbol[] parameterTypes() {
+        if (parameterTypes == null) {
+            ArrayList<CLClassSymbol> types = new ArrayList<CLClassSymbol>();
+            int i = 1;
+            while (descriptor.charAt(i) != ')') {
+                int start = i;
+                while (descriptor.charAt(i) == '[') {
+                    i++;
+                }
+                i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1
+                        : i + 1;
+                types.add(declaringClass.table().symbolFor(
+                        descriptor.substring(start, i)));
+            }
+            parameterTypes = types.toArray(new CLClassSymbol[types.size()]);
+        }
+        return parameterTypes;
+    }
+
+    /**
+     * Return the return type of a method, or the type of a field.
+     * 
+     * @return the type.
+     */
+
+    public CLClassSymbol type() {
+        return declaringClass.table().symbolFor(
+                descriptor.substring(descriptor.indexOf(')') + 1));
+    }
+
+}
+
+/**
+ * A table of class symbols, which makes sure there is a single symbol for each
+ * class, and resolves names and descriptors to symbols. The LIBRARY table holds
+ * the classes found in the system entries of the class path (those of the JDK
+ * itself); it reads each one (skipping its code and other attributes) the
+ * first time it is looked up, and keeps it for the life of the process. A
+ * compilation has a table of its own, holding the (partial) classes it
+ * declares and those it reads from the user entries of the class path, and
+ * deferring to the LIBRARY table for all others. It goes away with the
+ * compilation, so that a later compilation (in a compile server) sees the
+ * classes written since.
+ */
+
+class CLSymbolTable {
+
+    /** The table of the classes found on the class path. */
+    public static final CLSymbolTable LIBRARY = new CLSymbolTable(null);
+
+    /** The compilation this table is for, or null for the LIBRARY table. */
+    private Compilation compilation;
+
+    /**
+     * Classes in this table (or, for a compilation's table, found in the
+     * LIBRARY table), keyed by the internal forms of their names.
+     */
+    private ConcurrentHashMap<String, CLClassSymbol> classes;
+
+    /**
+     * Symbols standing for classes that could not be found, keyed by the
+     * internal forms of their names.
+     */
+    private ConcurrentHashMap<String, CLClassSymbol> stubs;
+
+    /** Names of the classes looked up in vain. */
+    private Set<String> missing;
+
+    /**
+     * Construct a table for the classes declared in the specified compilation,
+     * or, if the compilation is null, for the classes found on the class path.
+     * 
+     * @param compilation
+     *            the compilation, or null.
+     */
+
+    public CLSymbolTable(Compilation compilation) {
+        this.compilation = compilation;
+        this.classes = new ConcurrentHashMap<String, CLClassSymbol>();
+        this.stubs = new ConcurrentHashMap<String, CLClassSymbol>();
+        this.missing = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Return the compilation this table is for, or null for the LIBRARY table.
+     * 
+     * @return the compilation.
+     */
+
+    public Compilation compilation() {
+        return compilation;
+    }
+
+    /**
+     * Add the specified class symbol to this table, in place of any symbol for
+     * a class of the same name.
+     * 
+     * @param symbol
+     *            the class symbol.
+     */
+
+    public void define(CLClassSymbol symbol) {
+        classes.put(symbol.internalName(), symbol);
+        missing.remove(symbol.internalName());
+    }
+
+    /**
+     * Return the symbol for the class with the specified name, or null if there
+     * is no such class.
+     * 
+     * @param name
+     *            internal form of the class name (eg, java/lang/String).
+     * @return the class symbol or null.
+     */
+
+    public CLClassSymbol lookup(String name) {
+        CLClassSymbol symbol = classes.get(name);
+        if (symbol != null || missing.contains(name)) {
+            return symbol;
+        }
+        return load(name);
+    }
+
+    /**
+     * Return the symbol for the type with the specified descriptor. A class
+     * that cannot be found is represented by a symbol with no members.
+     * 
+     * @param descriptor
+     *            the descriptor.
+     * @return the symbol.
+     */
+
+    public CLClassSymbol symbolFor(String descriptor) {
+        switch (descriptor.charAt(0)) {
+        case 'I':
+            return CLClassSymbol.INT;
+        case 'C':
+            return CLClassSymbol.CHAR;
+        case 'D':
+            return CLClassSymbol.DOUBLE;
+        case 'Z':
+            return CLClassSymbol.BOOLEAN;
+        case 'B':
+            return CLClassSymbol.BYTE;
+        case 'S':
+            return CLClassSymbol.SHORT;
+        case 'J':
+            return CLClassSymbol.LONG;
+        case 'F':
+            return CLClassSymbol.FLOAT;
+        case 'V':
+            return CLClassSymbol.VOID;
+        case '[':
+            return symbolFor(descriptor.substring(1)).arrayType();
+        default:
+            String name = descriptor.substring(1, descriptor.length() - 1);
+            CLClassSymbol symbol = lookup(name);
+            if (symbol == null) {
+                symbol = stubs.get(name);
+                if (symbol == null) {
+                    symbol = new CLClassSymbol(name, this);
+                    CLClassSymbol other = stubs.putIfAbsent(name, symbol);
+                    symbol = other == null ? symbol : other;
+                }
+            }
+            return symbol;
+        }
+    }
+
+    /**
+     * Find the class with the specified name, and return its symbol, or null
+     * if there is no such class. The LIBRARY table reads the class from the
+     * system entries of the class path; a compilation's table reads it from
+     * the user entries, or else looks it up in the LIBRARY table. Classes are
+     * read one at a time, so that each is read only once.
+     * 
+     * @param name
+     *            internal form of the class name.
+     * @return the class symbol or null.
+     */
+
+    private synchronized CLClassSymbol load(String name) {
+        CLClassSymbol symbol = classes.get(name);
+        if (symbol != null || missing.contains(name)) {
+            return symbol;
+        }
+        if (compilation != null) {
+            symbol = read(name, CLPath.shared().loadUserClass(name));
+            if (symbol == null) {
+                symbol = LIBRARY.lookup(name);
+            }
+        } else {
+            symbol = read(name, CLPath.shared().loadSystemClass(name));
+        }
+        if (symbol == null) {
+            missing.add(name);
+            return null;
+        }
+        classes.put(name, symbol);
+        return symbol;
+    }
+
+    /**
+     * Return a symbol, in this table, for the class with the specified name
+     * read from the specified stream, or null if there is no stream or it
+     * does not hold that class.
+     * 
+     * @param name
+     *            internal form of the class name.
+     * @param in
+     *            stream from which to read the class file, or null.
+     * @return the class symbol or null.
+     */
+
+    private CLClassSymbol read(String name, CLInputStream in) {
+        if (in == null) {
+            return null;
+        }
+        CLAbsorber absorber = new CLAbsorber(name, in, true);
+        if (absorber.errorHasOccurred()) {
+            return null;
+        }
+        CLClassSymbol symbol = new CLClassSymbol(absorber.classFile(), this);
+        return symbol.internalName().equals(name) ? symbol : null;
+    }
+
+}
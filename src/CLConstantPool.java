@@ -4,6 +4,7 @@ package jminusminus;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * Representation of a class' constant_pool table (JVM Spec Section 4.5). An
@@ -22,6 +23,12 @@ class CLConstantPool {
     /** List of constant pool items. */
     private ArrayList<CLCPInfo> cpItems;
 
+    /**
+     * Maps each item in the constant pool to the first structurally equal item
+     * added, so that lookups need not scan cpItems.
+     */
+    private HashMap<CLCPInfo, CLCPInfo> cpItemsIndex;
+
     /**
      * Look for the specified item in the constant pool. If it exists, return
      * its index. Otherwise, add the item to the constant pool and return its
@@ -47,6 +54,7 @@ class CLConstantPool {
     public CLConstantPool() {
         cpIndex = 1;
         cpItems = new ArrayList<CLCPInfo>();
+        cpItemsIndex = new HashMap<CLCPInfo, CLCPInfo>();
     }
 
     /**
@@ -69,12 +77,8 @@ class CLConstantPool {
      */
 
     public int find(CLCPInfo cpInfo) {
-        int index = cpItems.indexOf(cpInfo);
-        if (index != -1) {
-            CLCPInfo c = cpItems.get(index);
-            index = c.cpIndex;
-        }
-        return index;
+        CLCPInfo c = cpItemsIndex.get(cpInfo);
+        return (c == null) ? -1 : c.cpIndex;
     }
 
     /**
@@ -107,6 +111,11 @@ class CLConstantPool {
         cpInfo.cpIndex = i;
         cpItems.add(cpInfo);
 
+        // Keep the earliest of any duplicates, as a linear scan would.
+        if (!cpItemsIndex.containsKey(cpInfo)) {
+            cpItemsIndex.put(cpInfo, cpInfo);
+        }
+
         // long and double, with their lower and higher words,
         // are treated by JVM as two items in the constant pool. We
         // have a single representation for each, so we add a null as
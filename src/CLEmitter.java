@@ -3,7 +3,6 @@
 package jminusminus;
 
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -11,6 +10,7 @@ import java.io.IOException;
 import java.io.DataOutputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.Stack;
 import java.util.StringTokenizer;
@@ -73,6 +73,13 @@ public class CLEmitter {
     /** Code (instruction) section of the method last added. */
     private ArrayList<CLInstruction> mCode;
 
+    /**
+     * Maps the pc of each instruction in mCode to its index in mCode, or -1 if
+     * no instruction starts at that pc. Built when the method last added is
+     * closed.
+     */
+    private int[] mPCIndex;
+
     /**
      * Table containing exception handlers in the method last added.
      */
@@ -137,12 +144,6 @@ public class CLEmitter {
      */
     private boolean errorHasOccurred;
 
-    /**
-     * Class loader to use for creating in-memory representation of classes from
-     * byte streams.
-     */
-    private static ByteClassLoader byteClassLoader;
-
     /**
      * Initialize all variables used for adding a method to the ClassFile
      * structure to their appropriate values.
@@ -203,8 +204,11 @@ public class CLEmitter {
             // Convert Instruction objects to bytes
             ArrayList<Integer> byteCode = new ArrayList<Integer>();
             int maxLocals = mArgumentCount;
+            mPCIndex = new int[mPC];
+            Arrays.fill(mPCIndex, -1);
             for (int i = 0; i < mCode.size(); i++) {
                 CLInstruction instr = mCode.get(i);
+                mPCIndex[instr.pc()] = i;
 
                 // Compute maxLocals
                 int localVariableIndex = instr.localVariableIndex();
@@ -600,13 +604,8 @@ public class CLEmitter {
      */
 
     private CLInstruction instruction(int pc) {
-        for (int j = 0; j < mCode.size(); j++) {
-            CLInstruction i = mCode.get(j);
-            if (i.pc() == pc) {
-                return i;
-            }
-        }
-        return null;
+        int j = instructionIndex(pc);
+        return (j == mCode.size()) ? null : mCode.get(j);
     }
 
     /**
@@ -615,18 +614,15 @@ public class CLEmitter {
      * 
      * @param pc
      *            pc of the instruction.
-     * @return index of the instruction with the specified pc.
+     * @return index of the instruction with the specified pc, or the size of
+     *         the code array if there is no such instruction.
      */
 
     private int instructionIndex(int pc) {
-        int j = 0;
-        for (; j < mCode.size(); j++) {
-            CLInstruction i = mCode.get(j);
-            if (i.pc() == pc) {
-                return j;
-            }
+        if (pc < 0 || pc >= mPCIndex.length || mPCIndex[pc] == -1) {
+            return mCode.size();
         }
-        return j;
+        return mPCIndex[pc];
     }
 
     /**
@@ -638,6 +634,10 @@ public class CLEmitter {
 
     private int stackDepth() {
         CLBranchStack branchTargets = new CLBranchStack();
+
+        // Instructions already walked. Stack depth at an instruction is the
+        // same along every path reaching it, so each is walked only once.
+        boolean[] walked = new boolean[mCode.size()];
         for (int i = 0; i < mExceptionHandlers.size(); i++) {
             CLException e = mExceptionHandlers.get(i);
             CLInstruction h = instruction(e.handlerPC);
@@ -651,6 +651,7 @@ public class CLEmitter {
         int stackDepth = 0, maxStackDepth = 0, c = 0;
         CLInstruction instr = (mCode.size() == 0) ? null : mCode.get(c);
         while (instr != null) {
+            walked[c] = true;
             int opcode = instr.opcode();
             int stackUnits = instr.stackUnits();
             if (stackUnits == EMPTY_STACK) {
@@ -696,14 +697,17 @@ public class CLEmitter {
             }
             if (instr != null) {
                 c++;
-                instr = (c >= mCode.size()) ? null : mCode.get(c);
+                instr = (c >= mCode.size() || walked[c]) ? null : mCode.get(c);
             }
-            if (instr == null) {
+            while (instr == null) {
                 CLBranchTarget bt = branchTargets.pop();
-                if (bt != null) {
+                if (bt == null) {
+                    break;
+                }
+                c = instructionIndex(bt.target.pc());
+                if (!walked[c]) {
                     instr = bt.target;
                     stackDepth = bt.stackDepth;
-                    c = instructionIndex(instr.pc());
                 }
             }
         }
@@ -1879,14 +1883,6 @@ public class CLEmitter {
         return constantPool;
     }
 
-    /**
-     * Set a new ByteClassLoader for loading classes from byte streams.
-     */
-
-    public static void initializeByteClassLoader() {
-        byteClassLoader = new ByteClassLoader();
-    }
-
     /**
      * Return the CLFile instance corresponding to the class built by this
      * emitter.
@@ -1896,37 +1892,6 @@ public class CLEmitter {
         return clFile;
     }
 
-    /**
-     * Return the class being constructed as a Java Class instance.
-     * 
-     * @return Java Class instance.
-     */
-    public Class toClass() {
-        endOpenMethodIfAny();
-        Class theClass = null;
-        try {
-            // Extract the bytes from the class representation in
-            // memory into an array of bytes
-            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-            CLOutputStream out = new CLOutputStream(new BufferedOutputStream(
-                    byteStream));
-            clFile.write(out);
-            out.close();
-            byte[] classBytes = byteStream.toByteArray();
-            byteStream.close();
-
-            // Load a Java Class instance from its byte
-            // representation
-            byteClassLoader.setClassBytes(classBytes);
-            theClass = byteClassLoader.loadClass(name, true);
-        } catch (IOException e) {
-            reportEmitterError("Cannot write class to byte stream");
-        } catch (ClassNotFoundException e) {
-            reportEmitterError("Cannot load class from byte stream");
-        }
-        return theClass;
-    }
-
     /**
      * Write out the class to the file system as a .class file if toFile is
      * true. The destination directory for the file can be set using the
@@ -2171,66 +2136,6 @@ class CLBranchStack {
 
 }
 
-/**
- * A class loader to be able to load a class from a byte stream.
- */
-
-class ByteClassLoader extends ClassLoader {
-
-    /** Bytes representing the class. */
-    private byte[] bytes;
-
-    /** Has a package been defined for this class loader? */
-    private boolean pkgDefined = false;
-
-    /**
-     * Set the bytes representing the class.
-     * 
-     * @param bytes
-     *            bytes representing the class.
-     */
-
-    public void setClassBytes(byte[] bytes) {
-        this.bytes = bytes;
-    }
-
-    /**
-     * @inheritDoc
-     */
-
-    public Class<?> loadClass(String name, boolean resolve)
-            throws ClassNotFoundException {
-        Class cls = findLoadedClass(name);
-        if (cls == null) {
-            try {
-                cls = findSystemClass(name);
-            } catch (Exception e) {
-                // Ignore these
-            }
-        }
-        if (cls == null) {
-            name = name.replace("/", ".");
-            String pkg = name.lastIndexOf('.') == -1 ? "" : name.substring(0,
-                    name.lastIndexOf('.'));
-            if (!pkgDefined) {
-                // Packages must be created before the class is
-                // defined, and package names must be unique
-                // within
-                // a class loader and cannot be redefined or
-                // changed once created
-                definePackage(pkg, "", "", "", "", "", "", null);
-                pkgDefined = true;
-            }
-            cls = defineClass(name, bytes, 0, bytes.length);
-            if (resolve && cls != null) {
-                resolveClass(cls);
-            }
-        }
-        return cls;
-    }
-
-}
-
 /**
  * Inherits from java.out.DataOutputStream and provides an extra function for
  * writing unsigned int to the output stream, which is required for writing Java
@@ -2,30 +2,70 @@
 
 package jminusminus;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.StringTokenizer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 /**
  * This class can be used to locate and load system, extension, and user-defined
- * class files from directories and zip (jar) files. The code for this class has
- * been adapted from the Kopi (http://www.dms.at/kopi/) project.
+ * class files from directories, zip (jar) files, and the run-time image (jrt:/)
+ * of modular JDKs. The code for this class has been adapted from the Kopi
+ * (http://www.dms.at/kopi/) project.
+ * 
+ * Each zip (jar) file is opened at most once, the first time it is searched,
+ * and stays open (along with its central directory, which ZipFile indexes by
+ * entry name) until close() is called, or until the file changes. The user
+ * entries of the class path (those from the CLASSPATH) may be searched apart
+ * from the system ones, as classes may be added to the former while the
+ * process runs; the latter are those of the JDK itself. Use shared() for the default class
+ * path, so that its archives are opened once per process; it is closed when
+ * the process shuts down.
  */
 
 class CLPath {
 
+    /** Class path entry standing for the run-time image of a modular JDK. */
+    private static final String JRT = "jrt:/";
+
+    /** The CLPath for the default class path; null until first asked for. */
+    private static CLPath shared;
+
     /**
      * Stores the individual directories, zip, and jar files from the class
      * path.
      */
     private ArrayList<String> dirs;
 
+    /** Index in dirs of the first system (or extension) entry. */
+    private int systemStart;
+
+    /** Zip (jar) files opened so far, keyed by their class path entry. */
+    private HashMap<String, ZipFile> archives;
+
+    /** Modification times of the zip (jar) files when they were opened. */
+    private HashMap<String, Long> archiveTimes;
+
+    /** The jrt:/ file system; null until it is first searched. */
+    private FileSystem jrt;
+
+    /**
+     * Maps a package name (tokens separated by '.') to the names of the jrt:/
+     * modules containing it.
+     */
+    private HashMap<String, ArrayList<String>> jrtPackages;
+
     /**
      * Return a list of conceptual directories defining the class path.
      * 
@@ -43,6 +83,7 @@ class CLPath {
         while (entries.hasMoreTokens()) {
             container.add(entries.nextToken());
         }
+        systemStart = container.size();
 
         // Add system directories
         if (System.getProperty("sun.boot.class.path") != null) {
@@ -52,18 +93,39 @@ class CLPath {
                 container.add(entries.nextToken());
             }
         } else {
-            float version = Float
-                    .parseFloat(System.getProperty("java.version"));
-            if (version > 1.1) {
-                String dir = System.getProperty("java.home")
-                        + File.separatorChar + "lib" + File.separatorChar
-                        + "rt.jar";
+            String dir = System.getProperty("java.home") + File.separatorChar
+                    + "lib" + File.separatorChar + "rt.jar";
+            if (new File(dir).isFile()) {
                 container.add(dir);
+            } else {
+                // JDK 9 and later keep system classes in the run-time
+                // image instead
+                container.add(JRT);
             }
         }
         return container;
     }
 
+    /**
+     * Return the CLPath for the default class path, shared by the whole
+     * process. Its archives are closed when the process shuts down.
+     * 
+     * @return the shared CLPath.
+     */
+
+    public static synchronized CLPath shared() {
+        if (shared == null) {
+            shared = new CLPath();
+            final CLPath path = shared;
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    path.close();
+                }
+            });
+        }
+        return shared;
+    }
+
     /**
      * Construct a CLPath object.
      */
@@ -92,6 +154,8 @@ class CLPath {
             path = ".";
         }
         dirs = loadClassPath(path);
+        archives = new HashMap<String, ZipFile>();
+        archiveTimes = new HashMap<String, Long>();
         if (extdir == null) {
             // Java extension classes
             extdir = System.getProperty("java.ext.dirs");
@@ -105,7 +169,7 @@ class CLPath {
                     if (file.isFile()
                             && (file.getName().endsWith(".zip") || file
                                     .getName().endsWith(".jar"))) {
-                        dirs.add(file.getName());
+                        dirs.add(file.getPath());
                     } else {
                         // Wrong suffix; ignore
                     }
@@ -117,7 +181,9 @@ class CLPath {
     /**
      * Return a CLInputStream instance for the class with specified name
      * (fully-qualified; tokens separated by '/') or null if the class was not
-     * found.
+     * found. The class path entries are searched in order, and the search stops
+     * at the first one containing the class. A CLPath may be searched from
+     * several threads; they take turns.
      * 
      * @param name
      *            the fully-qualified name of the class -- java/util/ArrayList
@@ -127,37 +193,185 @@ class CLPath {
      */
 
     public CLInputStream loadClass(String name) {
-        CLInputStream reader = null;
-        for (int i = 0; i < dirs.size(); i++) {
+        return loadClass(name, 0, dirs.size());
+    }
+
+    /**
+     * Return a CLInputStream instance for the class with specified name, or
+     * null if it is not found in the user entries of the class path.
+     * 
+     * @param name
+     *            the fully-qualified name of the class.
+     * @return a CLInputStream instance for the class or null.
+     */
+
+    public CLInputStream loadUserClass(String name) {
+        return loadClass(name, 0, systemStart);
+    }
+
+    /**
+     * Return a CLInputStream instance for the class with specified name, or
+     * null if it is not found in the system (and extension) entries of the
+     * class path.
+     * 
+     * @param name
+     *            the fully-qualified name of the class.
+     * @return a CLInputStream instance for the class or null.
+     */
+
+    public CLInputStream loadSystemClass(String name) {
+        return loadClass(name, systemStart, dirs.size());
+    }
+
+    /**
+     * Return a CLInputStream instance for the class with specified name, or
+     * null if it is not found in the class path entries from the specified
+     * index up to (not including) the other one.
+     * 
+     * @param name
+     *            the fully-qualified name of the class.
+     * @param from
+     *            index of the first entry searched.
+     * @param to
+     *            index past the last entry searched.
+     * @return a CLInputStream instance for the class or null.
+     */
+
+    private synchronized CLInputStream loadClass(String name, int from, int to) {
+        for (int i = from; i < to; i++) {
             String dir = dirs.get(i);
-            File file = new File(dir);
-            if (file.isDirectory()) {
-                File theClass = new File(dir, name.replace('/',
-                        File.separatorChar)
-                        + ".class");
-                if (theClass.canRead()) {
-                    try {
-                        reader = new CLInputStream(new BufferedInputStream(
-                                new FileInputStream(theClass)));
-                    } catch (FileNotFoundException e) {
-                        // Ignore
+            byte[] bytes = null;
+            try {
+                if (dir.equals(JRT)) {
+                    bytes = loadFromJrt(name);
+                } else {
+                    File file = new File(dir);
+                    if (file.isDirectory()) {
+                        File theClass = new File(dir, name.replace('/',
+                                File.separatorChar)
+                                + ".class");
+                        if (theClass.canRead()) {
+                            bytes = Files.readAllBytes(theClass.toPath());
+                        }
+                    } else if (file.isFile()) {
+                        bytes = loadFromArchive(dir, name);
+                    } else {
+                        // Bogus entry; ignore
                     }
                 }
-            } else if (file.isFile()) {
+            } catch (IOException e) {
+                // Ignore
+            }
+            if (bytes != null) {
+                return new CLInputStream(new ByteArrayInputStream(bytes));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Close all zip (jar) files opened by this CLPath. The CLPath may still be
+     * used afterwards, in which case the files are opened again as needed.
+     */
+
+    public synchronized void close() {
+        for (ZipFile zip : archives.values()) {
+            try {
+                zip.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+        archives.clear();
+        archiveTimes.clear();
+    }
+
+    /**
+     * Return the bytes of the class with the specified name from the specified
+     * zip (jar) file, or null if the file does not contain the class.
+     * 
+     * @param dir
+     *            the class path entry naming the zip (jar) file.
+     * @param name
+     *            the fully-qualified name of the class.
+     * @return the bytes of the class or null.
+     * @throws IOException
+     *             if an error occurs while reading.
+     */
+
+    private byte[] loadFromArchive(String dir, String name)
+            throws IOException {
+        ZipFile zip = archives.get(dir);
+        long time = new File(dir).lastModified();
+        if (zip != null && archiveTimes.get(dir) != time) {
+            // Changed since it was opened
+            zip.close();
+            zip = null;
+        }
+        if (zip == null) {
+            zip = new ZipFile(dir);
+            archives.put(dir, zip);
+            archiveTimes.put(dir, time);
+        }
+        ZipEntry entry = zip.getEntry(name + ".class");
+        if (entry == null) {
+            return null;
+        }
+        InputStream in = zip.getInputStream(entry);
+        try {
+            return in.readAllBytes();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Return the bytes of the class with the specified name from the run-time
+     * image, or null if the image does not contain the class.
+     * 
+     * @param name
+     *            the fully-qualified name of the class.
+     * @return the bytes of the class or null.
+     * @throws IOException
+     *             if an error occurs while reading.
+     */
+
+    private byte[] loadFromJrt(String name) throws IOException {
+        if (jrt == null) {
+            try {
+                jrt = FileSystems.getFileSystem(URI.create(JRT));
+            } catch (RuntimeException e) {
+                // No run-time image in this JDK
+                return null;
+            }
+            jrtPackages = new HashMap<String, ArrayList<String>>();
+        }
+        int slash = name.lastIndexOf('/');
+        String pkg = (slash == -1) ? "" : name.substring(0, slash).replace(
+                '/', '.');
+        ArrayList<String> modules = jrtPackages.get(pkg);
+        if (modules == null) {
+            modules = new ArrayList<String>();
+            Path pkgDir = jrt.getPath("/packages", pkg);
+            if (!pkg.equals("") && Files.isDirectory(pkgDir)) {
+                DirectoryStream<Path> stream = Files.newDirectoryStream(pkgDir);
                 try {
-                    ZipFile zip = new ZipFile(dir);
-                    ZipEntry entry = zip.getEntry(name + ".class");
-                    if (entry != null) {
-                        reader = new CLInputStream(zip.getInputStream(entry));
+                    for (Path module : stream) {
+                        modules.add(module.getFileName().toString());
                     }
-                } catch (IOException e) {
-                    // Ignore
+                } finally {
+                    stream.close();
                 }
-            } else {
-                // Bogus entry; ignore
+            }
+            jrtPackages.put(pkg, modules);
+        }
+        for (String module : modules) {
+            Path theClass = jrt.getPath("/modules", module, name + ".class");
+            if (Files.isRegularFile(theClass)) {
+                return Files.readAllBytes(theClass);
             }
         }
-        return reader;
+        return null;
     }
 
 }
@@ -0,0 +1,66 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state of a single compilation -- of one compilation unit, or of several
+ * compiled together. A Compilation is handed to JCompilationUnit.preAnalyze()
+ * (or declareTypes()), and is reachable from there on through the contexts
+ * built in pre-analysis.
+ * 
+ * It owns the symbol table in which the partial classes for the declared types
+ * are defined (along with the classes read from the user class path), and the
+ * Type representations of those types. Nothing in it is shared with other
+ * compilations, so several compilations may run on separate threads of one
+ * process. The symbols and Types of the JDK's classes are not part of a
+ * Compilation; they are shared by all.
+ */
+
+class Compilation {
+
+    /**
+     * Symbol table for the partial classes of the types declared in this
+     * compilation, and the classes it reads from the user class path.
+     */
+    private CLSymbolTable symbols;
+
+    /**
+     * Maps the descriptors of the types declared in this compilation to their
+     * Type representations.
+     */
+    private ConcurrentHashMap<String, Type> types;
+
+    /**
+     * Construct a Compilation.
+     */
+
+    public Compilation() {
+        symbols = new CLSymbolTable(this);
+        types = new ConcurrentHashMap<String, Type>();
+    }
+
+    /**
+     * Return the symbol table for the partial classes of the declared types.
+     * 
+     * @return the symbol table.
+     */
+
+    public CLSymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * Return the map from the descriptors of the types declared in this
+     * compilation to their Type representations. Type.typeFor() interns the
+     * types of the classes in this compilation's symbol table here.
+     * 
+     * @return the map of declared types.
+     */
+
+    public ConcurrentHashMap<String, Type> types() {
+        return types;
+    }
+
+}
@@ -83,13 +83,23 @@ class Context {
 
     public void addEntry(int line, String name, IDefn definition) {
         if (entries.containsKey(name)) {
-            JAST.compilationUnit.reportSemanticError(line, "redefining name: "
+            compilationUnit().reportSemanticError(line, "redefining name: "
                     + name);
         } else {
             entries.put(name, definition);
         }
     }
 
+    /**
+     * Return the compilation unit in which this context occurs.
+     * 
+     * @return the compilation unit.
+     */
+
+    public JCompilationUnit compilationUnit() {
+        return compilationUnitContext.compilationUnit;
+    }
+
     /**
      * Return the definition for a name in the environment. If it's not found in
      * this context, we look for it in the surrounding context(s).
@@ -224,14 +234,21 @@ class Context {
 
 class CompilationUnitContext extends Context {
 
+    /** The compilation unit this context is for. */
+    JCompilationUnit compilationUnit;
+
     /**
      * Construct a new compilation unit context. There are no surrounding
      * contexts.
+     * 
+     * @param compilationUnit
+     *            the compilation unit this context is for.
      */
 
-    public CompilationUnitContext() {
+    public CompilationUnitContext(JCompilationUnit compilationUnit) {
         super(null, null, null);
         compilationUnitContext = this;
+        this.compilationUnit = compilationUnit;
     }
 
     /**
@@ -8,9 +8,6 @@ package jminusminus;
 
 abstract class JAST {
 
-    /** Current compilation unit (set in JCompilationUnit()). */
-    public static JCompilationUnit compilationUnit;
-
     /** Line in which the source for the AST was found. */
     protected int line;
 
@@ -46,21 +43,6 @@ abstract class JAST {
 
     public abstract JAST analyze(Context context);
 
-    /**
-     * Generate a partial class for this type, reflecting only the member
-     * information required to do analysis.
-     * 
-     * @param context
-     *            the parent (class) context.
-     * @param partial
-     *            the code emitter (basically an abstraction for producing the
-     *            partial class).
-     */
-
-    public void partialCodegen(Context context, CLEmitter partial) {
-        // A dummy -- redefined where necessary.
-    }
-
     /**
      * Perform code generation for this AST.
      * 
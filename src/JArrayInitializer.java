@@ -49,7 +49,7 @@ class JArrayInitializer
     public JExpression analyze(Context context) {
         type = type.resolve(context);
         if (!type.isArray()) {
-            JAST.compilationUnit.reportSemanticError(line,
+            context.compilationUnit().reportSemanticError(line,
                 "Cannot initialize a " + type.toString()
                     + " with an array sequence {...}");
             return this; // un-analyzed
@@ -59,7 +59,7 @@ class JArrayInitializer
             JExpression component = initials.get(i);
             initials.set(i, component = component.analyze(context));
             if (!(component instanceof JArrayInitializer)) {
-                component.type().mustMatchExpected(line,
+                component.type().mustMatchExpected(context, line,
                     componentType);
             }
         }
@@ -67,13 +67,13 @@ class JAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
         } else {
             lhs = (JExpression) ((JLhs) lhs).analyzeLhs(context);
         }
         rhs = (JExpression) rhs.analyze(context);
-        rhs.type().mustMatchExpected(line(), lhs.type());
+        rhs.type().mustMatchExpected(context, line(), lhs.type());
         type = rhs.type();
         if (lhs instanceof JVariable) {
             IDefn defn = ((JVariable) lhs).iDefn();
@@ -143,7 +143,7 @@ class JPlusAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
 	    return this;
         } else {
@@ -151,16 +151,16 @@ class JPlusAssignOp extends JAssignment {
         }
         rhs = (JExpression) rhs.analyze(context);
         if (lhs.type().equals(Type.INT)) {
-            rhs.type().mustMatchExpected(line(), Type.INT);
+            rhs.type().mustMatchExpected(context, line(), Type.INT);
             type = Type.INT;
         } else if (lhs.type().equals(Type.STRING)) {
             rhs = (new JStringConcatenationOp(line, lhs, rhs)).analyze(context);
             type = Type.STRING;
         } else if(lhs.type().equals(Type.DOUBLE)) {
-            rhs.type().mustMatchExpected(line(), Type.DOUBLE);
+            rhs.type().mustMatchExpected(context, line(), Type.DOUBLE);
             type = Type.DOUBLE;
         }else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for +=: " + lhs.type());
         }
         return this;
@@ -230,7 +230,7 @@ class JMinusAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
        if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
         return this;
         } else {
@@ -238,13 +238,13 @@ class JMinusAssignOp extends JAssignment {
         }
         rhs = (JExpression) rhs.analyze(context);
         if (lhs.type().equals(Type.INT)) {
-            rhs.type().mustMatchExpected(line(),Type.INT);
+            rhs.type().mustMatchExpected(context, line(),Type.INT);
             type = Type.INT;
         } else if(lhs.type().equals(Type.DOUBLE)) {
-            rhs.type().mustMatchExpected(line(), Type.DOUBLE);
+            rhs.type().mustMatchExpected(context, line(), Type.DOUBLE);
             type = Type.DOUBLE;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for -=: " + lhs.type());
         }
         return this;
@@ -311,7 +311,7 @@ class JStarAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
         return this;
         } else {
@@ -319,13 +319,13 @@ class JStarAssignOp extends JAssignment {
         }
         rhs = (JExpression) rhs.analyze(context);
         if (lhs.type().equals(Type.INT)) {
-            rhs.type().mustMatchExpected(line(),Type.INT);
+            rhs.type().mustMatchExpected(context, line(),Type.INT);
             type = Type.INT;
         } else if(lhs.type().equals(Type.DOUBLE)) {
-            rhs.type().mustMatchExpected(line(), Type.DOUBLE);
+            rhs.type().mustMatchExpected(context, line(), Type.DOUBLE);
             type = Type.DOUBLE;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for *=: " + lhs.type());
         }
         return this;
@@ -393,7 +393,7 @@ class JDivAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
         return this;
         } else {
@@ -401,13 +401,13 @@ class JDivAssignOp extends JAssignment {
         }
         rhs = (JExpression) rhs.analyze(context);
         if (lhs.type().equals(Type.INT)) {
-            rhs.type().mustMatchExpected(line(),Type.INT);
+            rhs.type().mustMatchExpected(context, line(),Type.INT);
             type = Type.INT;
         } else if(lhs.type().equals(Type.DOUBLE)) {
-            rhs.type().mustMatchExpected(line(), Type.DOUBLE);
+            rhs.type().mustMatchExpected(context, line(), Type.DOUBLE);
             type = Type.DOUBLE;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for /=: " + lhs.type());
         }
         return this;
@@ -475,7 +475,7 @@ class JModAssignOp extends JAssignment {
 
     public JExpression analyze(Context context) {
         if (!(lhs instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Illegal lhs for assignment");
         return this;
         } else {
@@ -483,13 +483,13 @@ class JModAssignOp extends JAssignment {
         }
         rhs = (JExpression) rhs.analyze(context);
         if (lhs.type().equals(Type.INT)) {
-            rhs.type().mustMatchExpected(line(),Type.INT);
+            rhs.type().mustMatchExpected(context, line(),Type.INT);
             type = Type.INT;
         } else if(lhs.type().equals(Type.DOUBLE)) {
-            rhs.type().mustMatchExpected(line(), Type.DOUBLE);
+            rhs.type().mustMatchExpected(context, line(), Type.DOUBLE);
             type = Type.DOUBLE;
         } else {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Invalid lhs type for %=: " + lhs.type());
         }
         return this;
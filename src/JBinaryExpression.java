@@ -118,7 +118,7 @@ class JPlusOp extends JBinaryExpression {
             type = Type.DOUBLE;
         } else {
             type = Type.ANY;
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Invalid operand types for +");
         }
         return this;
@@ -494,8 +494,8 @@ class JBitwiseOrOp extends JBinaryExpression {
     public JExpression analyze(Context context) {
         lhs = (JExpression) lhs.analyze(context);
         rhs = (JExpression) rhs.analyze(context);
-        lhs.type().mustMatchExpected(line(), Type.INT);
-        rhs.type().mustMatchExpected(line(), Type.INT);
+        lhs.type().mustMatchExpected(context, line(), Type.INT);
+        rhs.type().mustMatchExpected(context, line(), Type.INT);
         type = Type.INT;
         return this;
     }
@@ -552,8 +552,8 @@ class JBitwiseExclusiveOrOp extends JBinaryExpression {
     public JExpression analyze(Context context) {
         lhs = (JExpression) lhs.analyze(context);
         rhs = (JExpression) rhs.analyze(context);
-        lhs.type().mustMatchExpected(line(), Type.INT);
-        rhs.type().mustMatchExpected(line(), Type.INT);
+        lhs.type().mustMatchExpected(context, line(), Type.INT);
+        rhs.type().mustMatchExpected(context, line(), Type.INT);
         type = Type.INT;
         return this;
     }
@@ -610,8 +610,8 @@ class JBitwiseAndOp extends JBinaryExpression {
     public JExpression analyze(Context context) {
         lhs = (JExpression) lhs.analyze(context);
         rhs = (JExpression) rhs.analyze(context);
-        lhs.type().mustMatchExpected(line(), Type.INT);
-        rhs.type().mustMatchExpected(line(), Type.INT);
+        lhs.type().mustMatchExpected(context, line(), Type.INT);
+        rhs.type().mustMatchExpected(context, line(), Type.INT);
         type = Type.INT;
         return this;
     }
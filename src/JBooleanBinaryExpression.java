@@ -90,7 +90,7 @@ class JEqualOp extends JBooleanBinaryExpression {
     public JExpression analyze(Context context) {
         lhs = (JExpression) lhs.analyze(context);
         rhs = (JExpression) rhs.analyze(context);
-        lhs.type().mustMatchExpected(line(), rhs.type());
+        lhs.type().mustMatchExpected(context, line(), rhs.type());
         type = Type.BOOLEAN;
         return this;
     }
@@ -157,8 +157,8 @@ class JLogicalAndOp extends JBooleanBinaryExpression {
     public JExpression analyze(Context context) {
         lhs = (JExpression) lhs.analyze(context);
         rhs = (JExpression) rhs.analyze(context);
-        lhs.type().mustMatchExpected(line(), Type.BOOLEAN);
-        rhs.type().mustMatchExpected(line(), Type.BOOLEAN);
+        lhs.type().mustMatchExpected(context, line(), Type.BOOLEAN);
+        rhs.type().mustMatchExpected(context, line(), Type.BOOLEAN);
         type = Type.BOOLEAN;
         return this;
     }
@@ -226,8 +226,8 @@ class JLogicalOrOp extends JBooleanBinaryExpression {
     public JExpression analyze(Context context) {
         lhs = (JExpression) lhs.analyze(context);
         rhs = (JExpression) rhs.analyze(context);
-        lhs.type().mustMatchExpected(line(), Type.BOOLEAN);
-        rhs.type().mustMatchExpected(line(), Type.BOOLEAN);
+        lhs.type().mustMatchExpected(context, line(), Type.BOOLEAN);
+        rhs.type().mustMatchExpected(context, line(), Type.BOOLEAN);
         type = Type.BOOLEAN;
         return this;
     }
@@ -125,12 +125,16 @@ class JClassDeclaration extends JAST implements JTypeDecl {
      */
 
     public void declareThisType(Context context) {
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ? name
-                : JAST.compilationUnit.packageName() + "/" + name;
-        CLEmitter partial = new CLEmitter(false);
-        partial.addClass(mods, qualifiedName, Type.OBJECT.jvmName(), null,
-                false); // Object for superClass, just for now
-        thisType = Type.typeFor(partial.toClass());
+        String packageName = context.compilationUnit().packageName();
+        String qualifiedName = packageName == "" ? name : packageName + "/"
+                + name;
+        CLSymbolTable symbols = context.compilationUnit().compilation()
+                .symbols();
+        // Object for superClass, just for now
+        CLClassSymbol partial = new CLClassSymbol(mods, qualifiedName,
+                Type.OBJECT.jvmName(), symbols);
+        symbols.define(partial);
+        thisType = Type.typeFor(partial);
         context.addType(line, thisType);
     }
 
@@ -150,22 +154,23 @@ class JClassDeclaration extends JAST implements JTypeDecl {
         // Resolve superclass
         superType = superType.resolve(this.context);
 
-        // Creating a partial class in memory can result in a
-        // java.lang.VerifyError if the semantics below are
-        // violated, so we can't defer these checks to analyze()
-        thisType.checkAccess(line, superType);
+        // The partial class must not be built on an inaccessible or
+        // final super class, so we can't defer these checks to
+        // analyze()
+        thisType.checkAccess(context, line, superType);
         if (superType.isFinal()) {
-            JAST.compilationUnit.reportSemanticError(line,
+            context.compilationUnit().reportSemanticError(line,
                     "Cannot extend a final type: %s", superType.toString());
         }
 
-        // Create the (partial) class
-        CLEmitter partial = new CLEmitter(false);
-
-        // Add the class header to the partial class
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ? name
-                : JAST.compilationUnit.packageName() + "/" + name;
-        partial.addClass(mods, qualifiedName, superType.jvmName(), null, false);
+        // Create the (partial) class, from the class header
+        CLSymbolTable symbols = context.compilationUnit().compilation()
+                .symbols();
+        String packageName = context.compilationUnit().packageName();
+        String qualifiedName = packageName == "" ? name : packageName + "/"
+                + name;
+        CLClassSymbol partial = new CLClassSymbol(mods, qualifiedName,
+                superType.jvmName(), symbols);
 
         // Pre-analyze the members and add them to the partial
         // class
@@ -179,15 +184,14 @@ class JClassDeclaration extends JAST implements JTypeDecl {
 
         // Add the implicit empty constructor?
         if (!hasExplicitConstructor) {
-            codegenPartialImplicitConstructor(partial);
+            declarePartialImplicitConstructor(partial);
         }
 
-        // Get the Class rep for the (partial) class and make it
-        // the
-        // representation for this type
+        // Make the (partial) class the representation for this type
         Type id = this.context.lookupType(name);
-        if (id != null && !JAST.compilationUnit.errorHasOccurred()) {
-            id.setClassRep(partial.toClass());
+        if (id != null && !context.compilationUnit().errorHasOccurred()) {
+            symbols.define(partial);
+            id.setClassRep(partial);
         }
     }
 
@@ -226,7 +230,7 @@ class JClassDeclaration extends JAST implements JTypeDecl {
             for (Method method : thisType.abstractMethods()) {
                 methods += "\n" + method;
             }
-            JAST.compilationUnit.reportSemanticError(line,
+            context.compilationUnit().reportSemanticError(line,
                     "Class must be declared abstract since it defines "
                             + "the following abstract methods: %s", methods);
 
@@ -244,8 +248,9 @@ class JClassDeclaration extends JAST implements JTypeDecl {
 
     public void codegen(CLEmitter output) {
         // The class header
-        String qualifiedName = JAST.compilationUnit.packageName() == "" ? name
-                : JAST.compilationUnit.packageName() + "/" + name;
+        String packageName = context.compilationUnit().packageName();
+        String qualifiedName = packageName == "" ? name : packageName + "/"
+                + name;
         output.addClass(mods, qualifiedName, superType.jvmName(), null, false);
 
         // The implicit empty constructor?
@@ -305,25 +310,17 @@ class JClassDeclaration extends JAST implements JTypeDecl {
     }
 
     /**
-     * Generate code for an implicit empty constructor. (Necessary only if there
-     * is not already an explicit one.)
+     * Add the header of an implicit empty constructor to the partial class.
+     * (Necessary only if there is not already an explicit one.)
      * 
      * @param partial
-     *            the code emitter (basically an abstraction for producing a
-     *            Java class).
+     *            symbol for the partial class.
      */
 
-    private void codegenPartialImplicitConstructor(CLEmitter partial) {
-        // Invoke super constructor
+    private void declarePartialImplicitConstructor(CLClassSymbol partial) {
         ArrayList<String> mods = new ArrayList<String>();
         mods.add("public");
-        partial.addMethod(mods, "<init>", "()V", null, false);
-        partial.addNoArgInstruction(ALOAD_0);
-        partial.addMemberAccessInstruction(INVOKESPECIAL, superType.jvmName(),
-                "<init>", "()V");
-
-        // Return
-        partial.addNoArgInstruction(RETURN);
+        partial.addMethod(mods, "<init>", "()V");
     }
 
     /**
@@ -19,9 +19,9 @@ import java.util.ArrayList;
  * 
  * (1) Method preAnalyze() is invoked for making a first pass at type analysis,
  * recursively reaching down to the member headers for declaring types and
- * member interfaces in the environment (contexts). preAnalyze() also creates a
- * partial class file (in memory) for recording member header information, using
- * the partialCodegen() method.
+ * member interfaces in the environment (contexts). preAnalyze() also builds a
+ * partial class symbol (CLClassSymbol) for recording member header information,
+ * straight from the member declarations.
  * 
  * (2) Method analyze() is invoked for type-checking field initializations and
  * method bodies, and determining the types of all expressions. A certain amount
@@ -61,6 +61,9 @@ class JCompilationUnit extends JAST {
     /** For imports and type declarations. */
     private CompilationUnitContext context;
 
+    /** The compilation this unit is part of (set in pre-analysis). */
+    private Compilation compilation;
+
     /** Whether a semantic error has been found. */
     private boolean isInError;
 
@@ -89,7 +92,6 @@ class JCompilationUnit extends JAST {
         this.imports = imports;
         this.typeDeclarations = typeDeclarations;
         clFiles = new ArrayList<CLFile>();
-        compilationUnit = this;
     }
 
     /**
@@ -102,6 +104,16 @@ class JCompilationUnit extends JAST {
         return packageName == null ? "" : packageName.toString();
     }
 
+    /**
+     * The compilation this unit is part of.
+     * 
+     * @return the compilation.
+     */
+
+    public Compilation compilation() {
+        return compilation;
+    }
+
     /**
      * Has a semantic error occurred up to now?
      * 
@@ -135,39 +147,177 @@ class JCompilationUnit extends JAST {
      * Construct a context for the compilation unit, initializing it with
      * imported types. Then pre-analyze the unit's type declarations, adding
      * their types to the context.
+     * 
+     * @param compilation
+     *            the compilation this unit is part of.
      */
 
-    public void preAnalyze() {
-        context = new CompilationUnitContext();
-
-        // Declare the two implicit types java.lang.Object and
-        // java.lang.String
-        context.addType(0, Type.OBJECT);
-        context.addType(0, Type.STRING);
+    public void preAnalyze(Compilation compilation) {
+        this.compilation = compilation;
+        createContext();
 
         // Declare any imported types
+        declareImportedTypes(new ArrayList<JCompilationUnit>());
+
+        // Declare the locally declared type(s)
+        declareLocalTypes();
+
+        // Pre-analyze the locally declared type(s). Generate
+        // (partial) class symbols, reflecting only the member
+        // interface type information
+        preAnalyzeTypes();
+    }
+
+    /**
+     * The first step of pre-analysis when several compilation units are
+     * compiled together: construct a context for the compilation unit and
+     * declare the unit's own types in it. All units must take this step, in a
+     * common Compilation, before any takes the next one --
+     * declareImportedTypes().
+     * 
+     * @param compilation
+     *            the compilation the units are part of.
+     */
+
+    public void declareTypes(Compilation compilation) {
+        this.compilation = compilation;
+        createContext();
+        declareLocalTypes();
+    }
+
+    /**
+     * The second step of pre-analysis when several compilation units are
+     * compiled together: declare the imported types, and the types declared in
+     * the other specified compilation units, in this unit's context. Imports
+     * are resolved against the types declared in the units before the class
+     * path. Types from units in the same package are declared by their simple
+     * and qualified names, others by their qualified names only. The last step
+     * is preAnalyzeTypes().
+     * 
+     * @param units
+     *            compilation units being compiled along with this one.
+     */
+
+    public void declareImportedTypes(ArrayList<JCompilationUnit> units) {
         for (TypeName imported : imports) {
-            try {
-                Class<?> classRep = Class.forName(imported.toString());
-                context.addType(imported.line(), Type.typeFor(classRep));
-            } catch (Exception e) {
-                JAST.compilationUnit.reportSemanticError(imported.line(),
+            Type type = null;
+            for (JCompilationUnit unit : units) {
+                for (Type declared : unit.declaredTypes()) {
+                    if (declared.toString().equals(imported.toString())) {
+                        type = declared;
+                    }
+                }
+            }
+            if (type == null) {
+                CLClassSymbol symbol = compilation.symbols().lookup(
+                        imported.toString().replace('.', '/'));
+                if (symbol != null) {
+                    type = Type.typeFor(symbol);
+                }
+            }
+            if (type != null) {
+                context.addType(imported.line(), type);
+            } else {
+                reportSemanticError(imported.line(),
                         "Unable to find %s", imported.toString());
             }
         }
+        for (JCompilationUnit unit : units) {
+            if (unit == this) {
+                continue;
+            }
+            for (Type declared : unit.declaredTypes()) {
+                Type known = context.lookupType(declared.toString());
+                JAST ownDeclaration = typeDeclarationFor(declared.toString());
+                if (ownDeclaration != null) {
+                    reportSemanticError(ownDeclaration
+                            .line(), "Type %s is also declared in %s",
+                            declared, unit.fileName);
+                } else if (known == declared) {
+                    // Imported explicitly
+                    continue;
+                } else if (known != null) {
+                    reportSemanticError(line,
+                            "Type %s clashes with a type declared in %s",
+                            declared, unit.fileName);
+                } else if (packageName().equals(unit.packageName())
+                        && context.lookupType(declared.simpleName()) == null) {
+                    context.addType(line, declared);
+                } else {
+                    context.addEntry(line, declared.toString(),
+                            new TypeNameDefn(declared));
+                }
+            }
+        }
+    }
 
-        // Declare the locally declared type(s)
-        CLEmitter.initializeByteClassLoader();
+    /**
+     * The last step of pre-analysis: pre-analyze the unit's type declarations,
+     * generating (partial) class symbols that reflect only the member
+     * interface type information.
+     */
+
+    public void preAnalyzeTypes() {
         for (JAST typeDeclaration : typeDeclarations) {
-            ((JTypeDecl) typeDeclaration).declareThisType(context);
+            ((JTypeDecl) typeDeclaration).preAnalyze(context);
         }
+    }
 
-        // Pre-analyze the locally declared type(s). Generate
-        // (partial) Class instances, reflecting only the member
-        // interface type information
-        CLEmitter.initializeByteClassLoader();
+    /**
+     * Return the types declared in this compilation unit (available once they
+     * have been declared in pre-analysis).
+     * 
+     * @return list of declared types.
+     */
+
+    public ArrayList<Type> declaredTypes() {
+        ArrayList<Type> declaredTypes = new ArrayList<Type>();
         for (JAST typeDeclaration : typeDeclarations) {
-            ((JTypeDecl) typeDeclaration).preAnalyze(context);
+            Type type = ((JTypeDecl) typeDeclaration).thisType();
+            if (type != null) {
+                declaredTypes.add(type);
+            }
+        }
+        return declaredTypes;
+    }
+
+    /**
+     * Return the declaration in this compilation unit of the type with the
+     * specified (qualified) name, or null if there is none.
+     * 
+     * @param name
+     *            the qualified name of the type.
+     * @return the type declaration or null.
+     */
+
+    private JAST typeDeclarationFor(String name) {
+        for (JAST typeDeclaration : typeDeclarations) {
+            Type type = ((JTypeDecl) typeDeclaration).thisType();
+            if (type != null && type.toString().equals(name)) {
+                return typeDeclaration;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Construct a context for the compilation unit, declaring the two implicit
+     * types java.lang.Object and java.lang.String.
+     */
+
+    private void createContext() {
+        context = new CompilationUnitContext(this);
+        context.addType(0, Type.OBJECT);
+        context.addType(0, Type.STRING);
+    }
+
+    /**
+     * Declare the locally declared type(s) in the unit's context.
+     */
+
+    private void declareLocalTypes() {
+        for (JAST typeDeclaration : typeDeclarations) {
+            ((JTypeDecl) typeDeclaration).declareThisType(context);
         }
     }
 
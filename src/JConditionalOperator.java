@@ -39,7 +39,7 @@ public class JConditionalOperator extends JExpression {
 	@Override
 	public JExpression analyze(Context context) {
 		lhs = (JExpression) lhs.analyze(context);
-        lhs.type().mustMatchExpected(line(), Type.BOOLEAN);
+        lhs.type().mustMatchExpected(context, line(), Type.BOOLEAN);
         rhsYes = (JExpression) rhsYes.analyze(context);
         if (rhsNo != null) {
             rhsNo = (JExpression) rhsNo.analyze(context);
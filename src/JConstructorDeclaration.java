@@ -49,17 +49,17 @@ class JConstructorDeclaration extends JMethodDeclaration implements JMember {
      * @param context
      *            the parent (class) context.
      * @param partial
-     *            the code emitter (basically an abstraction for producing the
-     *            partial class).
+     *            symbol for the partial class, recording only the member
+     *            headers.
      */
 
-    public void preAnalyze(Context context, CLEmitter partial) {
+    public void preAnalyze(Context context, CLClassSymbol partial) {
         super.preAnalyze(context, partial);
         if (isStatic) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Constructor cannot be declared static");
         } else if (isAbstract) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Constructor cannot be declared abstract");
         }
         if (body.statements().size() > 0
@@ -115,24 +115,14 @@ class JConstructorDeclaration extends JMethodDeclaration implements JMember {
     }
 
     /**
-     * Add this constructor declaration to the partial class.
+     * Add this constructor's header to the partial class.
      * 
-     * @param context
-     *            the parent (class) context.
      * @param partial
-     *            the code emitter (basically an abstraction for producing the
-     *            partial class).
+     *            symbol for the partial class.
      */
 
-    public void partialCodegen(Context context, CLEmitter partial) {
-        partial.addMethod(mods, "<init>", descriptor, null, false);
-        if (!invokesConstructor) {
-            partial.addNoArgInstruction(ALOAD_0);
-            partial.addMemberAccessInstruction(INVOKESPECIAL,
-                    ((JTypeDecl) context.classContext().definition())
-                            .superType().jvmName(), "<init>", "()V");
-        }
-        partial.addNoArgInstruction(RETURN);
+    protected void declareHeader(CLClassSymbol partial) {
+        partial.addMethod(mods, "<init>", descriptor);
     }
 
     /**
@@ -33,7 +33,7 @@ public class JDoWhileStatement extends JStatement {
 	@Override
 	public JAST analyze(Context context) {
 		condition = condition.analyze(context);
-        condition.type().mustMatchExpected(line(), Type.BOOLEAN);
+        condition.type().mustMatchExpected(context, line(), Type.BOOLEAN);
         body = (JStatement) body.analyze(context);
         return this;
 	}
@@ -56,22 +56,21 @@ class JFieldDeclaration extends JAST implements JMember {
      * @param context
      *            the parent (class) context.
      * @param partial
-     *            the code emitter (basically an abstraction for producing the
-     *            partial class).
+     *            symbol for the partial class, recording only the member
+     *            headers.
      */
 
-    public void preAnalyze(Context context, CLEmitter partial) {
+    public void preAnalyze(Context context, CLClassSymbol partial) {
         // Fields may not be declared abstract.
         if (mods.contains("abstract")) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Field cannot be declared abstract");
         }
 
         for (JVariableDeclarator decl : decls) {
             // Add field to (partial) class
             decl.setType(decl.type().resolve(context));
-            partial.addField(mods, decl.name(), decl.type().toDescriptor(),
-                    false);
+            partial.addField(mods, decl.name(), decl.type().toDescriptor());
         }
     }
 
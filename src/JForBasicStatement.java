@@ -59,7 +59,7 @@ public class JForBasicStatement extends JStatement {
 		for(JStatement forInitStatement : forInitStatements){
 			forInitStatement.analyze(context);
 		}
-		condition.type().mustMatchExpected(line(), Type.BOOLEAN);
+		condition.type().mustMatchExpected(context, line(), Type.BOOLEAN);
         body = (JStatement) body.analyze(context);
 
         for(JStatement update : forUpdate){
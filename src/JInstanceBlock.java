@@ -23,7 +23,7 @@ public class JInstanceBlock extends JAST implements JMember {
 		this.block = body;
 	}
 	
-	public void preAnalyze(Context context, CLEmitter partial) {
+	public void preAnalyze(Context context, CLClassSymbol partial) {
 		
 	}
 	
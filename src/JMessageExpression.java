@@ -96,7 +96,7 @@ class JMessageExpression extends JExpression {
                     target = expr;
                 } else {
                     // Can't even happen syntactically
-                    JAST.compilationUnit.reportSemanticError(line(),
+                    context.compilationUnit().reportSemanticError(line(),
                             "Badly formed suffix");
                 }
             }
@@ -126,7 +126,7 @@ class JMessageExpression extends JExpression {
         } else {
             target = (JExpression) target.analyze(context);
             if (target.type().isPrimitive()) {
-                JAST.compilationUnit.reportSemanticError(line(),
+                context.compilationUnit().reportSemanticError(line(),
                         "cannot invoke a message on a primitive type:"
                                 + target.type());
             }
@@ -135,19 +135,19 @@ class JMessageExpression extends JExpression {
         // Find appropriate Method for this message expression
         method = target.type().methodFor(messageName, argTypes);
         if (method == null) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Cannot find method for: "
                             + Type.signatureFor(messageName, argTypes));
             type = Type.ANY;
         } else {
-            context.definingType().checkAccess(line, (Member) method);
+            context.definingType().checkAccess(context, line, (Member) method);
             type = method.returnType();
 
             // Non-static method cannot be referenced from a static context.
             if (!method.isStatic()) {
                 if (target instanceof JVariable
                         && ((JVariable) target).iDefn() instanceof TypeNameDefn) {
-                    JAST.compilationUnit
+                    context.compilationUnit()
                             .reportSemanticError(
                                     line(),
                                     "Non-static method "
@@ -84,11 +84,11 @@ class JMethodDeclaration
      * @param context
      *                the parent (class) context.
      * @param partial
-     *                the code emitter (basically an abstraction
-     *                for producing the partial class).
+     *                symbol for the partial class, recording
+     *                only the member headers.
      */
 
-    public void preAnalyze(Context context, CLEmitter partial) {
+    public void preAnalyze(Context context, CLClassSymbol partial) {
         // Resolve types of the formal parameters
         for (JFormalParameter param : params) {
             param.setType(param.type().resolve(context));
@@ -99,16 +99,16 @@ class JMethodDeclaration
 
         // Check proper local use of abstract
         if (isAbstract && body != null) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                 "abstract method cannot have a body");
         } else if (body == null && !isAbstract) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                 "Method with null body must be abstarct");
         } else if (isAbstract && isPrivate) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                 "private method cannot be declared abstract");
         } else if (isAbstract && isStatic) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                 "static method cannot be declared abstract");
         }
 
@@ -119,8 +119,8 @@ class JMethodDeclaration
         }
         descriptor += ")" + returnType.toDescriptor();
 
-        // Generate the method with an empty body (for now)
-        partialCodegen(context, partial);
+        // Add the method header to the partial class
+        declareHeader(partial);
     }
 
     /**
@@ -157,7 +157,7 @@ class JMethodDeclaration
         if (body != null) {
             body = body.analyze(this.context);
 	    if (returnType!=Type.VOID && ! methodContext.methodHasReturn()){
-		JAST.compilationUnit.reportSemanticError(line(),
+		context.compilationUnit().reportSemanticError(line(),
 		    "Non-void method must have a return statement");
 	    }
         }
@@ -165,36 +165,14 @@ class JMethodDeclaration
     }
 
     /**
-     * Add this method declaration to the partial class.
+     * Add this method's header to the partial class.
      * 
-     * @param context
-     *                the parent (class) context.
      * @param partial
-     *                the code emitter (basically an abstraction
-     *                for producing the partial class).
+     *                symbol for the partial class.
      */
 
-    public void partialCodegen(Context context, CLEmitter partial) {
-        // Generate a method with an empty body; need a return to
-        // make
-        // the class verifier happy.
-        partial.addMethod(mods, name, descriptor, null, false);
-
-        // Add implicit RETURN
-        if (returnType == Type.VOID) {
-            partial.addNoArgInstruction(RETURN);
-        } else if (returnType == Type.INT
-            || returnType == Type.BOOLEAN || returnType == Type.CHAR) {
-            partial.addNoArgInstruction(ICONST_0);
-            partial.addNoArgInstruction(IRETURN);
-        } else if (returnType == Type.DOUBLE){
-            partial.addNoArgInstruction(DCONST_0);
-            partial.addNoArgInstruction(DRETURN);
-        } else {
-            // A reference type.
-            partial.addNoArgInstruction(ACONST_NULL);
-            partial.addNoArgInstruction(ARETURN);
-        }
+    protected void declareHeader(CLClassSymbol partial) {
+        partial.addMethod(mods, name, descriptor);
     }
 
     /**
@@ -63,7 +63,7 @@ class JNewOp extends JExpression {
 
         // Can't instantiate an abstract type
         if (type.isAbstract()) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Cannot instantiate an abstract type:" + type.toString());
         }
 
@@ -77,7 +77,7 @@ class JNewOp extends JExpression {
         constructor = type.constructorFor(argTypes);
 
         if (constructor == null) {
-            JAST.compilationUnit.reportSemanticError(line(),
+            context.compilationUnit().reportSemanticError(line(),
                     "Cannot find constructor: "
                             + Type.signatureFor(type.toString(), argTypes));
         }
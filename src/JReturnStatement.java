@@ -59,7 +59,7 @@ class JReturnStatement
         if (methodContext.methodReturnType() == Type.CONSTRUCTOR) {
             if (expr != null) {
                 // Can't return a value from a constructor
-                JAST.compilationUnit.reportSemanticError(line(),
+                context.compilationUnit().reportSemanticError(line(),
                     "cannot return a value from a constructor");
             }
         } else {
@@ -69,7 +69,7 @@ class JReturnStatement
             if (expr != null) {
                 if (returnType == Type.VOID) {
                     // Can't return a value from void method
-                    JAST.compilationUnit.reportSemanticError(line(),
+                    context.compilationUnit().reportSemanticError(line(),
                         "cannot return a value from a void method");
                 } else {
                     // There's a (non-void) return expression.
@@ -77,12 +77,12 @@ class JReturnStatement
                     // type must match the return type of the
                     // method
                     expr = expr.analyze(context);
-                    expr.type().mustMatchExpected(line(), returnType);
+                    expr.type().mustMatchExpected(context, line(), returnType);
                 }
             } else {
                 // The method better have void as return type
                 if (returnType != Type.VOID) {
-                    JAST.compilationUnit.reportSemanticError(line(),
+                    context.compilationUnit().reportSemanticError(line(),
                         "missing return value");
                 }
             }
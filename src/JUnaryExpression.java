@@ -87,10 +87,10 @@ class JNegateOp extends JUnaryExpression {
     public JExpression analyze(Context context) {
         arg = arg.analyze(context);
         if (arg.type().equals(Type.INT)){
-            arg.type().mustMatchExpected(line(), Type.INT);
+            arg.type().mustMatchExpected(context, line(), Type.INT);
             type = Type.INT;
         } else {
-            arg.type().mustMatchExpected(line(), Type.DOUBLE);
+            arg.type().mustMatchExpected(context, line(), Type.DOUBLE);
             type = Type.DOUBLE;
         }
         
@@ -151,10 +151,10 @@ class JUnaryPlusOp extends JUnaryExpression {
     public JExpression analyze(Context context) {
         arg = arg.analyze(context);
         if (arg.type().equals(Type.INT)){
-            arg.type().mustMatchExpected(line(), Type.INT);
+            arg.type().mustMatchExpected(context, line(), Type.INT);
             type = Type.INT;
         } else {
-            arg.type().mustMatchExpected(line(), Type.DOUBLE);
+            arg.type().mustMatchExpected(context, line(), Type.DOUBLE);
             type = Type.DOUBLE;
         }
         return this;
@@ -206,7 +206,7 @@ class JLogicalNotOp extends JUnaryExpression {
 
     public JExpression analyze(Context context) {
         arg = (JExpression) arg.analyze(context);
-        arg.type().mustMatchExpected(line(), Type.BOOLEAN);
+        arg.type().mustMatchExpected(context, line(), Type.BOOLEAN);
         type = Type.BOOLEAN;
         return this;
     }
@@ -278,7 +278,7 @@ class JPostDecrementOp extends JUnaryExpression {
 
     public JExpression analyze(Context context) {
         if (!(arg instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line,
+            context.compilationUnit().reportSemanticError(line,
                     "Operand to expr-- must have an LValue.");
             type = Type.ANY;
         } else {
@@ -371,7 +371,7 @@ class JPostIncrementOp extends JUnaryExpression {
 
     public JExpression analyze(Context context) {
        if (!(arg instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line,
+            context.compilationUnit().reportSemanticError(line,
                     "Operand to expr-- must have an LValue.");
             type = Type.ANY;
         } else {
@@ -464,7 +464,7 @@ class JPreIncrementOp extends JUnaryExpression {
 
     public JExpression analyze(Context context) {
         if (!(arg instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line,
+            context.compilationUnit().reportSemanticError(line,
                     "Operand to ++expr must have an LValue.");
             type = Type.ANY;
         } else {
@@ -556,7 +556,7 @@ class JPreDecrementOp extends JUnaryExpression {
 
     public JExpression analyze(Context context) {
         if (!(arg instanceof JLhs)) {
-            JAST.compilationUnit.reportSemanticError(line,
+            context.compilationUnit().reportSemanticError(line,
                     "Operand to ++expr must have an LValue.");
             type = Type.ANY;
         } else {
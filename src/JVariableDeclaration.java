@@ -81,7 +81,7 @@ class JVariableDeclaration extends JStatement {
             IDefn previousDefn = context.lookup(decl.name());
             if (previousDefn != null
                     && previousDefn instanceof LocalVariableDefn) {
-                JAST.compilationUnit.reportSemanticError(decl.line(),
+                context.compilationUnit().reportSemanticError(decl.line(),
                         "The name " + decl.name()
                                 + " overshadows another local variable.");
             }
@@ -3,13 +3,17 @@
 package jminusminus;
 
 import java.io.FileNotFoundException;
-import java.util.Stack;
-import java.util.Vector;
 
 /**
  * A lexical analyzer for j-- that interfaces with the hand-written parser
  * (Parser.java). It provides a backtracking mechanism, and makes use of the
  * underlying hand-written Scanner.
+ * 
+ * Scanned tokens are kept in a ring buffer, indexed by their (absolute)
+ * positions in the token stream. A recorded position is just such an index,
+ * pushed on a stack, and returning to it moves the cursor back; tokens are
+ * never copied, and are kept only as long as some recorded position (or the
+ * previous token) may still need them.
  */
 
 class LookaheadScanner {
@@ -17,14 +21,23 @@ class LookaheadScanner {
     /** The underlying hand-written scanner. */
     private Scanner scanner;
 
-    /** Backtracking queue. */
-    private Vector<TokenInfo> backtrackingQueue;
+    /**
+     * Scanned tokens; the token at position i is at index i & (length - 1),
+     * the length being a power of two.
+     */
+    private TokenInfo[] tokens;
+
+    /** Position of the next token to be returned by next(). */
+    private int position;
 
-    /** Token queue. */
-    private Vector<TokenInfo> nextQueue;
+    /** Position one past the last token scanned. */
+    private int limit;
 
-    /** Stack of token queues for nested lookahead. */
-    private Stack<Vector<TokenInfo>> queueStack;
+    /** Stack of recorded positions, for nested lookahead. */
+    private int[] marks;
+
+    /** Number of recorded positions on the stack. */
+    private int depth;
 
     /** Whether we are looking ahead. */
     public boolean isLookingAhead;
@@ -46,9 +59,8 @@ class LookaheadScanner {
 
     public LookaheadScanner(String fileName) throws FileNotFoundException {
         scanner = new Scanner(fileName);
-        backtrackingQueue = new Vector<TokenInfo>();
-        nextQueue = new Vector<TokenInfo>();
-        queueStack = new Stack<Vector<TokenInfo>>();
+        tokens = new TokenInfo[64];
+        marks = new int[16];
         isLookingAhead = false;
     }
 
@@ -58,47 +70,74 @@ class LookaheadScanner {
 
     public void next() {
         previousToken = token;
-        if (backtrackingQueue.size() == 0) {
-            token = scanner.getNextToken();
-        } else {
-            token = backtrackingQueue.remove(0);
-        }
-        if (isLookingAhead) {
-            nextQueue.add(token);
+        if (position == limit) {
+            if (limit - oldestKept() == tokens.length) {
+                grow();
+            }
+            tokens[limit & (tokens.length - 1)] = scanner.getNextToken();
+            limit++;
         }
+        token = tokens[position & (tokens.length - 1)];
+        position++;
     }
 
     /**
      * Record the current position in the input, so that we can start looking
-     * ahead in the input (and later return to this position). We'll queue up
-     * the current and subsequent tokens until returnToPosition() is invoked.
-     * These recordPosition's can be nested.
+     * ahead in the input (and later return to this position). The current and
+     * subsequent tokens are kept until returnToPosition() is invoked. These
+     * recordPosition's can be nested.
      */
 
     public void recordPosition() {
+        if (depth == marks.length) {
+            int[] newMarks = new int[marks.length * 2];
+            System.arraycopy(marks, 0, newMarks, 0, depth);
+            marks = newMarks;
+        }
+        marks[depth++] = position;
         isLookingAhead = true;
-        queueStack.push(nextQueue);
-        nextQueue = new Vector<TokenInfo>();
-        nextQueue.add(previousToken);
-        nextQueue.add(token);
     }
 
     /**
      * Return to the previously recorded position in the input stream of tokens.
-     * If this is a nested lookahead, then return to the previous token queue.
+     * If this is a nested lookahead, then return to the enclosing lookahead.
      */
 
     public void returnToPosition() {
-        while (backtrackingQueue.size() > 0) {
-            nextQueue.add(backtrackingQueue.remove(0));
-        }
-        backtrackingQueue = nextQueue;
-        nextQueue = queueStack.pop();
-        isLookingAhead = !(queueStack.empty());
+        position = marks[--depth];
+        isLookingAhead = depth > 0;
 
         // Restore previous and current tokens
-        previousToken = backtrackingQueue.remove(0);
-        token = backtrackingQueue.remove(0);
+        token = position >= 1 ? tokens[(position - 1) & (tokens.length - 1)]
+                : null;
+        previousToken = position >= 2 ? tokens[(position - 2)
+                & (tokens.length - 1)] : null;
+    }
+
+    /**
+     * Return the position of the oldest token that must be kept: the previous
+     * token at the outermost recorded position (or, if there is none, at the
+     * current position).
+     * 
+     * @return the position of the oldest token kept.
+     */
+
+    private int oldestKept() {
+        return Math.max(0, (depth > 0 ? marks[0] : position) - 2);
+    }
+
+    /**
+     * Double the capacity of the token buffer, keeping the tokens still
+     * needed at their positions.
+     */
+
+    private void grow() {
+        TokenInfo[] newTokens = new TokenInfo[tokens.length * 2];
+        for (int i = oldestKept(); i < limit; i++) {
+            newTokens[i & (newTokens.length - 1)] = tokens[i
+                    & (tokens.length - 1)];
+        }
+        tokens = newTokens;
     }
 
     /**
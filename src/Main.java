@@ -2,8 +2,20 @@
 
 package jminusminus;
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.StringTokenizer;
 import static jminusminus.TokenKind.EOF;
 
 /**
@@ -31,6 +43,17 @@ import static jminusminus.TokenKind.EOF;
  * Again, codegen() recursively descends the tree, down to its leaves,
  * generating JVM code for producing a .class or .s (SPIM) file for each defined
  * type (class).
+ * 
+ * Given several source files, or a directory of them, Main hands over to a
+ * ParallelDriver, which compiles them together.
+ * 
+ * With the -server option, the compiler instead runs as a long-lived daemon
+ * that reads compilation requests -- one per line, holding the arguments that
+ * would otherwise be passed on the command line -- from STDIN, or from
+ * connections to a local socket if a port is given. Each request is answered
+ * by the compiler's usual output followed by a line "#exit 0" (success) or
+ * "#exit 1" (failure). JIT-compiled code, library classes and their Types are
+ * reused from one request to the next, while each request is compiled afresh.
  */
 
 public class Main {
@@ -38,23 +61,59 @@ public class Main {
     /** Whether an error occurred during compilation. */
     private static boolean errorHasOccurred;
 
+    /** Default maximum number of physical registers available. */
+    private static final int DEFAULT_MAX_REGISTER_COUNT = NPhysicalRegister.MAX_COUNT;
+
     /**
      * Entry point.
      */
 
     public static void main(String args[]) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-server")) {
+                try {
+                    if ((i + 1) < args.length) {
+                        serve(Integer.parseInt(args[i + 1]));
+                    } else {
+                        serve(System.in, System.out, System.err);
+                    }
+                } catch (NumberFormatException e) {
+                    printUsage("java jminusminus.Main");
+                } catch (IOException e) {
+                    System.err.println("Error: " + e.getMessage());
+                }
+                return;
+            }
+        }
+        errorHasOccurred = compile(args);
+    }
+
+    /**
+     * Compile according to the specified command-line arguments. All the state
+     * of the compilation is local to it, so that compilations may follow one
+     * another (or run on separate threads) in one process.
+     * 
+     * @param args
+     *            command-line arguments.
+     * @return true if an error occurred; false otherwise.
+     */
+
+    private static boolean compile(String args[]) {
         String caller = "java jminusminus.Main";
         String sourceFile = "";
+        ArrayList<String> sourceFiles = new ArrayList<String>();
         String debugOption = "";
         String outputDir = ".";
         boolean spimOutput = false;
         String registerAllocation = "";
-        errorHasOccurred = false;
+        int maxRegisterCount = DEFAULT_MAX_REGISTER_COUNT;
+        boolean errorHasOccurred = false;
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("j--")) {
                 caller = "j--";
             } else if (args[i].endsWith(".java")) {
                 sourceFile = args[i];
+                sourceFiles.add(sourceFile);
             } else if (args[i].equals("-t") || args[i].equals("-p")
                     || args[i].equals("-pa") || args[i].equals("-a")) {
                 debugOption = args[i];
@@ -68,29 +127,35 @@ public class Main {
                         && !registerAllocation.equals("graph")
                         || registerAllocation.equals("")) {
                     printUsage(caller);
-                    return;
+                    return true;
                 }
             } else if (args[i].endsWith("-r") && (i + 1) < args.length) {
-                NPhysicalRegister.MAX_COUNT = Math.min(18, Integer
-                        .parseInt(args[++i]));
-                NPhysicalRegister.MAX_COUNT = Math.max(1,
-                        NPhysicalRegister.MAX_COUNT);
+                maxRegisterCount = Math.min(18, Integer.parseInt(args[++i]));
+                maxRegisterCount = Math.max(1, maxRegisterCount);
+            } else if (new File(args[i]).isDirectory()) {
+                addSourceFiles(new File(args[i]), sourceFiles);
             } else {
                 printUsage(caller);
-                return;
+                return true;
             }
         }
-        if (sourceFile.equals("")) {
+        if (sourceFiles.size() == 0) {
             printUsage(caller);
-            return;
+            return true;
+        }
+        if (sourceFiles.size() > 1) {
+            // Compile the files together
+            return new ParallelDriver(sourceFiles, debugOption, outputDir,
+                    spimOutput, registerAllocation, maxRegisterCount).compile();
         }
+        sourceFile = sourceFiles.get(0);
 
         LookaheadScanner scanner = null;
         try {
             scanner = new LookaheadScanner(sourceFile);
         } catch (FileNotFoundException e) {
             System.err.println("Error: file " + sourceFile + " not found.");
-            return;
+            return true;
         }
 
         if (debugOption.equals("-t")) {
@@ -103,7 +168,7 @@ public class Main {
                         .tokenRep(), token.image());
             } while (token.kind() != EOF);
             errorHasOccurred |= scanner.errorHasOccured();
-            return;
+            return errorHasOccurred;
         }
 
         // Parse input
@@ -112,32 +177,32 @@ public class Main {
         errorHasOccurred |= parser.errorHasOccurred();
         if (debugOption.equals("-p")) {
             ast.writeToStdOut(new PrettyPrinter());
-            return;
+            return errorHasOccurred;
         }
         if (errorHasOccurred) {
-            return;
+            return true;
         }
 
         // Do pre-analysis
-        ast.preAnalyze();
-        errorHasOccurred |= JAST.compilationUnit.errorHasOccurred();
+        ast.preAnalyze(new Compilation());
+        errorHasOccurred |= ast.errorHasOccurred();
         if (debugOption.equals("-pa")) {
             ast.writeToStdOut(new PrettyPrinter());
-            return;
+            return errorHasOccurred;
         }
         if (errorHasOccurred) {
-            return;
+            return true;
         }
 
         // Do analysis
         ast.analyze(null);
-        errorHasOccurred |= JAST.compilationUnit.errorHasOccurred();
+        errorHasOccurred |= ast.errorHasOccurred();
         if (debugOption.equals("-a")) {
             ast.writeToStdOut(new PrettyPrinter());
-            return;
+            return errorHasOccurred;
         }
         if (errorHasOccurred) {
-            return;
+            return true;
         }
 
         // Generate JVM code
@@ -146,18 +211,128 @@ public class Main {
         ast.codegen(clEmitter);
         errorHasOccurred |= clEmitter.errorHasOccurred();
         if (errorHasOccurred) {
-            return;
+            return true;
         }
 
         // If SPIM output was asked for, convert the in-memory
         // JVM instructions to SPIM using the specified register
-        // allocation scheme.
+        // allocation scheme. The SPIM back-end keeps its state in
+        // static fields, so only one compilation at a time may use it.
         if (spimOutput) {
-            NEmitter nEmitter = new NEmitter(sourceFile, ast.clFiles(),
-                    registerAllocation);
-            nEmitter.destinationDir(outputDir);
-            nEmitter.write();
-            errorHasOccurred |= nEmitter.errorHasOccurred();
+            synchronized (NEmitter.class) {
+                NPhysicalRegister.MAX_COUNT = maxRegisterCount;
+                NEmitter nEmitter = new NEmitter(sourceFile, ast.clFiles(),
+                        registerAllocation);
+                nEmitter.destinationDir(outputDir);
+                nEmitter.write();
+                errorHasOccurred |= nEmitter.errorHasOccurred();
+            }
+        }
+        return errorHasOccurred;
+    }
+
+    /**
+     * Add the .java files in the specified directory and its subdirectories to
+     * the specified list, in order of their names.
+     * 
+     * @param dir
+     *            the directory.
+     * @param sourceFiles
+     *            list of source files.
+     */
+
+    private static void addSourceFiles(File dir, ArrayList<String> sourceFiles) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                addSourceFiles(file, sourceFiles);
+            } else if (file.getName().endsWith(".java")) {
+                sourceFiles.add(file.getPath());
+            }
+        }
+    }
+
+    /**
+     * Serve compilation requests, one per connection line, on the specified
+     * port of the loopback interface. Connections are served one at a time;
+     * during a request, the compiler's STDOUT and STDERR are redirected to the
+     * connection.
+     * 
+     * @param port
+     *            port to listen on.
+     * @throws IOException
+     *             if the server socket cannot be opened.
+     */
+
+    private static void serve(int port) throws IOException {
+        ServerSocket server = new ServerSocket(port, 50, InetAddress
+                .getLoopbackAddress());
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        try {
+            while (true) {
+                Socket client = server.accept();
+                try {
+                    PrintStream out = new PrintStream(client.getOutputStream(),
+                            true);
+                    System.setOut(out);
+                    System.setErr(out);
+                    serve(client.getInputStream(), out, out);
+                } catch (IOException e) {
+                    // Client went away; serve the next one
+                } finally {
+                    System.setOut(stdout);
+                    System.setErr(stderr);
+                    client.close();
+                }
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     * Serve compilation requests read, one per line, from the specified input
+     * stream until it is exhausted or a line reading "quit" is seen. The status
+     * of each request is written to the specified output stream, and any
+     * unexpected failure of the compiler to the specified error stream.
+     * 
+     * @param in
+     *            stream requests are read from.
+     * @param out
+     *            stream request statuses are written to.
+     * @param err
+     *            stream unexpected failures are reported to.
+     * @throws IOException
+     *             if an error occurs while reading requests.
+     */
+
+    private static void serve(InputStream in, PrintStream out,
+            PrintStream err) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        String request;
+        while ((request = reader.readLine()) != null
+                && !request.trim().equals("quit")) {
+            StringTokenizer tokens = new StringTokenizer(request);
+            String[] args = new String[tokens.countTokens()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = tokens.nextToken();
+            }
+            boolean errorHasOccurred;
+            try {
+                errorHasOccurred = compile(args);
+            } catch (RuntimeException e) {
+                errorHasOccurred = true;
+                err.println("Error: compiler failure: " + e);
+            }
+            System.out.flush();
+            System.err.flush();
+            out.println("#exit " + (errorHasOccurred ? 1 : 0));
+            out.flush();
         }
     }
 
@@ -181,7 +356,7 @@ public class Main {
     private static void printUsage(String caller) {
         String usage = "Usage: "
                 + caller
-                + " <options> <source file>\n"
+                + " <options> <source files or directories>\n"
                 + "where possible options include:\n"
                 + "  -t Only tokenize input and print tokens to STDOUT\n"
                 + "  -p Only parse input and print AST to STDOUT\n"
@@ -191,7 +366,9 @@ public class Main {
                 + "and print AST to STDOUT\n"
                 + "  -s <naive|linear|graph> Generate SPIM code\n"
                 + "  -r <num> Max. physical registers (1-18) available for allocation; default = 8\n"
-                + "  -d <dir> Specify where to place output files; default = .";
+                + "  -d <dir> Specify where to place output files; default = .\n"
+                + "  -server [<port>] Serve compilation requests, one per line, "
+                + "from STDIN or the given local port";
         System.out.println(usage);
     }
 
@@ -2,10 +2,13 @@
 
 package jminusminus;
 
+import java.lang.reflect.Modifier;
+
 /**
- * A wrapper for members (eg Fields, Methods, Constructors) in the Java API.
- * Members are used in message expressions, field selections, and new object
- * construction operations.
+ * A wrapper for members (eg Fields, Methods, Constructors) of classes, as
+ * represented by their member symbols (CLMemberSymbol). Members are used in
+ * message expressions, field selections, and new object construction
+ * operations.
  */
 
 abstract class Member {
@@ -17,7 +20,7 @@ abstract class Member {
      */
 
     public String name() {
-        return member().getName();
+        return member().name();
     }
 
     /**
@@ -27,7 +30,7 @@ abstract class Member {
      */
 
     public Type declaringType() {
-        return Type.typeFor(member().getDeclaringClass());
+        return Type.typeFor(member().declaringClass());
     }
 
     /**
@@ -37,7 +40,7 @@ abstract class Member {
      */
 
     public boolean isStatic() {
-        return java.lang.reflect.Modifier.isStatic(member().getModifiers());
+        return Modifier.isStatic(member().accessFlags());
     }
 
     /**
@@ -47,7 +50,7 @@ abstract class Member {
      */
 
     public boolean isPublic() {
-        return java.lang.reflect.Modifier.isPublic(member().getModifiers());
+        return Modifier.isPublic(member().accessFlags());
     }
 
     /**
@@ -57,7 +60,7 @@ abstract class Member {
      */
 
     public boolean isProtected() {
-        return java.lang.reflect.Modifier.isProtected(member().getModifiers());
+        return Modifier.isProtected(member().accessFlags());
     }
 
     /**
@@ -67,7 +70,7 @@ abstract class Member {
      */
 
     public boolean isPrivate() {
-        return java.lang.reflect.Modifier.isPrivate(member().getModifiers());
+        return Modifier.isPrivate(member().accessFlags());
     }
 
     /**
@@ -77,7 +80,7 @@ abstract class Member {
      */
 
     public boolean isAbstract() {
-        return java.lang.reflect.Modifier.isAbstract(member().getModifiers());
+        return Modifier.isAbstract(member().accessFlags());
     }
 
     /**
@@ -90,7 +93,7 @@ abstract class Member {
      */
 
     public boolean isFinal() {
-        return java.lang.reflect.Modifier.isFinal(member().getModifiers());
+        return Modifier.isFinal(member().accessFlags());
     }
 
     /**
@@ -99,7 +102,7 @@ abstract class Member {
      * @return the internal representation.
      */
 
-    protected abstract java.lang.reflect.Member member();
+    protected abstract CLMemberSymbol member();
 
 }
 
@@ -111,16 +114,16 @@ abstract class Member {
 class Method extends Member {
 
     /** Internal representation of this method. */
-    private java.lang.reflect.Method method;
+    private CLMemberSymbol method;
 
     /**
      * Construct a Method is constructed from its internal representation.
      * 
      * @param method
-     *            a Java method in the relection API.
+     *            the symbol for a method of a class.
      */
 
-    public Method(java.lang.reflect.Method method) {
+    public Method(CLMemberSymbol method) {
         this.method = method;
     }
 
@@ -131,12 +134,7 @@ class Method extends Member {
      */
 
     public String toDescriptor() {
-        String descriptor = "(";
-        for (Class paramType : method.getParameterTypes()) {
-            descriptor += Type.typeFor(paramType).toDescriptor();
-        }
-        descriptor += ")" + Type.typeFor(method.getReturnType()).toDescriptor();
-        return descriptor;
+        return method.descriptor();
     }
 
     /**
@@ -147,7 +145,7 @@ class Method extends Member {
 
     public String toString() {
         String str = name() + "(";
-        for (Class paramType : method.getParameterTypes()) {
+        for (CLClassSymbol paramType : method.parameterTypes()) {
             str += Type.typeFor(paramType).toString();
         }
         str += ")";
@@ -161,7 +159,7 @@ class Method extends Member {
      */
 
     public Type returnType() {
-        return Type.typeFor(method.getReturnType());
+        return Type.typeFor(method.type());
     }
 
     /**
@@ -173,8 +171,8 @@ class Method extends Member {
      */
 
     public boolean equals(Method that) {
-        return Type.argTypesMatch(this.method.getParameterTypes(), that.method
-                .getParameterTypes());
+        return Type.argTypesMatch(this.method.argumentDescriptor(), that.method
+                .argumentDescriptor());
     }
 
     /**
@@ -183,7 +181,7 @@ class Method extends Member {
      * @return the internal representation.
      */
 
-    protected java.lang.reflect.Member member() {
+    protected CLMemberSymbol member() {
         return method;
     }
 
@@ -196,16 +194,16 @@ class Method extends Member {
 class Field extends Member {
 
     /** Internal representation of this field. */
-    private java.lang.reflect.Field field;
+    private CLMemberSymbol field;
 
     /**
      * Construct a Field is constructed from its internal representation.
      * 
      * @param field
-     *            a Java field in the relection API.
+     *            the symbol for a field of a class.
      */
 
-    public Field(java.lang.reflect.Field field) {
+    public Field(CLMemberSymbol field) {
         this.field = field;
     }
 
@@ -216,14 +214,14 @@ class Field extends Member {
      */
 
     public Type type() {
-        return Type.typeFor(field.getType());
+        return Type.typeFor(field.type());
     }
 
     /**
      * @inheritDoc
      */
 
-    protected java.lang.reflect.Member member() {
+    protected CLMemberSymbol member() {
         return field;
     }
 
@@ -236,16 +234,16 @@ class Field extends Member {
 class Constructor extends Member {
 
     /** Internal representation of this constructor. */
-    java.lang.reflect.Constructor constructor;
+    CLMemberSymbol constructor;
 
     /**
      * Construct a Constructor from its internal representation.
      * 
      * @param constructor
-     *            a Java constructor in the relection API.
+     *            the symbol for a constructor of a class.
      */
 
-    public Constructor(java.lang.reflect.Constructor constructor) {
+    public Constructor(CLMemberSymbol constructor) {
         this.constructor = constructor;
     }
 
@@ -256,12 +254,7 @@ class Constructor extends Member {
      */
 
     public String toDescriptor() {
-        String descriptor = "(";
-        for (Class paramType : constructor.getParameterTypes()) {
-            descriptor += Type.typeFor(paramType).toDescriptor();
-        }
-        descriptor += ")V";
-        return descriptor;
+        return constructor.descriptor();
     }
 
     /**
@@ -271,14 +264,14 @@ class Constructor extends Member {
      */
 
     public Type declaringType() {
-        return Type.typeFor(constructor.getDeclaringClass());
+        return Type.typeFor(constructor.declaringClass());
     }
 
     /**
      * @inheritDoc
      */
 
-    protected java.lang.reflect.Member member() {
+    protected CLMemberSymbol member() {
         return constructor;
     }
 
@@ -5,7 +5,10 @@ package jminusminus;
 import static jminusminus.CLConstants.*;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Stack;
 import java.util.TreeMap;
@@ -248,8 +251,10 @@ class NBasicBlock {
         s = "Locals: ";
         if (locals != null) {
             for (int i = 0; i < locals.length; i++) {
-                if (!(cfg.hirMap.get(locals[i]) instanceof NHIRLocal)) {
-                    s += cfg.hirMap.get(locals[i]).id() + " ";
+                // Skip locals whose values have been optimized away.
+                NHIRInstruction local = cfg.hirMap.get(locals[i]);
+                if (local != null && !(local instanceof NHIRLocal)) {
+                    s += local.id() + " ";
                 }
             }
         }
@@ -433,6 +438,36 @@ class NControlFlowGraph {
     /** Used to construct jump labels in spim output. */
     public String labelPrefix;
 
+    /**
+     * Lattice value of an HIR instruction during constant propagation: not yet
+     * known to have a value.
+     */
+    private static final int TOP = 0;
+
+    /** Lattice value: known to have a single constant value. */
+    private static final int CONSTANT = 1;
+
+    /** Lattice value: may have more than one value. */
+    private static final int BOTTOM = 2;
+
+    /**
+     * Lattice values (TOP, CONSTANT or BOTTOM) of the HIR instructions, indexed
+     * by id, during constant propagation.
+     */
+    private int[] lattice;
+
+    /**
+     * Values of the HIR instructions whose lattice value is CONSTANT, indexed
+     * by id.
+     */
+    private int[] constants;
+
+    /**
+     * Maps each block found executable during constant propagation to its
+     * predecessors along the edges found executable.
+     */
+    private HashMap<NBasicBlock, HashSet<NBasicBlock>> reached;
+
     /**
      * SPIM code for string literals added to the data segment.
      */
@@ -1144,7 +1179,948 @@ class NControlFlowGraph {
      */
 
     public void optimize() {
-        // TBD
+        propagateConstants();
+        eliminateDeadCode();
+        numberValues();
+        eliminateDeadCode();
+        hoistLoopInvariants();
+    }
+
+    /**
+     * Sparse conditional constant propagation (Wegman and Zadeck) over the
+     * HIR. Starting from the begin block, blocks are found executable along
+     * the edges their jumps may take, and instructions are given lattice
+     * values, only instructions in executable blocks (and phi arguments along
+     * executable edges) being taken into account. Then, arithmetic and phi
+     * functions found constant are replaced by constants (with the same ids),
+     * conditional jumps on constants by gotos, and the blocks found
+     * unreachable are removed.
+     */
+
+    private void propagateConstants() {
+        lattice = new int[hirId];
+        constants = new int[hirId];
+        reached = new HashMap<NBasicBlock, HashSet<NBasicBlock>>();
+
+        // Map each instruction to the instructions using its value.
+        HashMap<Integer, ArrayList<Integer>> uses =
+                new HashMap<Integer, ArrayList<Integer>>();
+        for (NBasicBlock block : basicBlocks) {
+            for (int id : block.hir) {
+                for (int operand : hirMap.get(id).operands()) {
+                    int def = hirMap.get(operand).id;
+                    if (!uses.containsKey(def)) {
+                        uses.put(def, new ArrayList<Integer>());
+                    }
+                    uses.get(def).add(id);
+                }
+            }
+        }
+
+        // Propagate along executable edges, and along uses of
+        // instructions whose lattice value has changed.
+        Queue<NBasicBlock[]> edges = new LinkedList<NBasicBlock[]>();
+        Queue<Integer> changed = new LinkedList<Integer>();
+        NBasicBlock beginBlock = basicBlocks.get(0);
+        reached.put(beginBlock, new HashSet<NBasicBlock>());
+        visitBlock(beginBlock, edges, changed);
+        while (!edges.isEmpty() || !changed.isEmpty()) {
+            if (!edges.isEmpty()) {
+                NBasicBlock[] edge = edges.remove();
+                NBasicBlock pred = edge[0], block = edge[1];
+                if (!reached.containsKey(block)) {
+                    reached.put(block, new HashSet<NBasicBlock>());
+                    reached.get(block).add(pred);
+                    visitBlock(block, edges, changed);
+                } else if (reached.get(block).add(pred)) {
+                    for (int id : block.hir) {
+                        if (hirMap.get(id) instanceof NHIRPhiFunction) {
+                            visitInstruction(hirMap.get(id), changed);
+                        }
+                    }
+                }
+            } else {
+                int def = changed.remove();
+                if (!uses.containsKey(def)) {
+                    continue;
+                }
+                for (int id : uses.get(def)) {
+                    NHIRInstruction ins = hirMap.get(id);
+                    if (!reached.containsKey(ins.block)) {
+                        continue;
+                    }
+                    if (ins instanceof NHIRConditionalJump) {
+                        visitJump(ins.block, edges);
+                    } else {
+                        visitInstruction(ins, changed);
+                    }
+                }
+            }
+        }
+
+        // Replace the instructions found constant by constants.
+        for (NBasicBlock block : reached.keySet()) {
+            for (int id : block.hir) {
+                NHIRInstruction ins = hirMap.get(id);
+                if (ins.id == id && lattice[id] == CONSTANT
+                        && !(ins instanceof NHIRIntConstant)) {
+                    hirMap.put(id, new NHIRIntConstant(block, id,
+                            constants[id]));
+                }
+            }
+        }
+        // Replace the conditional jumps found constant by gotos.
+        for (NBasicBlock block : reached.keySet()) {
+            NHIRInstruction last = block.hir.isEmpty() ? null : hirMap
+                    .get(block.hir.get(block.hir.size() - 1));
+            if (!(last instanceof NHIRConditionalJump)
+                    || !hasConstantOperands((NHIRConditionalJump) last)) {
+                continue;
+            }
+            NHIRConditionalJump jump = (NHIRConditionalJump) last;
+            NBasicBlock taken = isTaken(jump) ? jump.onTrueDestination
+                    : jump.onFalseDestination;
+            NBasicBlock other = isTaken(jump) ? jump.onFalseDestination
+                    : jump.onTrueDestination;
+            if (other != taken && canRemoveEdge(block, other)) {
+                removeEdge(block, other);
+                hirMap.put(jump.id, new NHIRGoto(block, jump.id, taken));
+            }
+        }
+
+        // Remove the blocks found unreachable, unless one of them
+        // cannot be detached from the reachable ones.
+        HashSet<NBasicBlock> toRemove = new HashSet<NBasicBlock>();
+        boolean removable = true;
+        for (NBasicBlock block : basicBlocks) {
+            if (reached.containsKey(block)) {
+                continue;
+            }
+            toRemove.add(block);
+            for (NBasicBlock succ : block.successors) {
+                removable &= !reached.containsKey(succ)
+                        || canRemoveEdge(block, succ);
+            }
+        }
+        if (removable) {
+            for (NBasicBlock block : toRemove) {
+                while (!block.successors.isEmpty()) {
+                    removeEdge(block, block.successors.get(0));
+                }
+                basicBlocks.remove(block);
+            }
+            Iterator<NHIRInstruction> it = hirMap.values().iterator();
+            while (it.hasNext()) {
+                if (toRemove.contains(it.next().block)) {
+                    it.remove();
+                }
+            }
+        }
+
+        resolveAliases();
+        lattice = null;
+        constants = null;
+        reached = null;
+    }
+
+    /**
+     * Global value numbering over the dominator tree. Walking the tree from
+     * the begin block, each arithmetic, field load and array load is looked
+     * up, by its opcode and the value numbers of its operands, among the
+     * instructions in the dominating blocks (and earlier in its own block); if
+     * an equivalent one is found, the instruction is replaced by it. A load is
+     * replaced only if no store or invocation may have changed the value
+     * loaded since. Constants are numbered by their values, but are shared
+     * only within a block, and not across an invocation, so as not to
+     * lengthen their live ranges; one is cheaper to load again than to keep
+     * in a register through a call.
+     */
+
+    private void numberValues() {
+        HashMap<NBasicBlock, ArrayList<NBasicBlock>> children =
+                new HashMap<NBasicBlock, ArrayList<NBasicBlock>>();
+        for (NBasicBlock block : basicBlocks) {
+            children.put(block, new ArrayList<NBasicBlock>());
+        }
+        for (NBasicBlock block : basicBlocks) {
+            if (block.dom != null && children.containsKey(block.dom)) {
+                children.get(block.dom).add(block);
+            }
+        }
+        numberValues(basicBlocks.get(0), children,
+                new HashMap<String, NHIRInstruction>());
+        resolveAliases();
+    }
+
+    /**
+     * Number the values computed in a block and, recursively, in the blocks
+     * it immediately dominates.
+     * 
+     * @param block
+     *            the block.
+     * @param children
+     *            maps each block to the blocks it immediately dominates.
+     * @param available
+     *            maps value numbers to the instructions computing them in the
+     *            dominating blocks.
+     */
+
+    private void numberValues(NBasicBlock block,
+            HashMap<NBasicBlock, ArrayList<NBasicBlock>> children,
+            HashMap<String, NHIRInstruction> available) {
+        HashMap<String, NHIRInstruction> shadowed =
+                new HashMap<String, NHIRInstruction>();
+        HashMap<Integer, NHIRInstruction> blockConstants =
+                new HashMap<Integer, NHIRInstruction>();
+        for (int id : new ArrayList<Integer>(block.hir)) {
+            NHIRInstruction ins = hirMap.get(id);
+            NHIRInstruction equivalent = null;
+            String key = null;
+            if (ins instanceof NHIRInvoke) {
+                blockConstants.clear();
+            } else if (ins instanceof NHIRIntConstant) {
+                int value = ((NHIRIntConstant) ins).value;
+                equivalent = blockConstants.get(value);
+                if (equivalent == null) {
+                    blockConstants.put(value, ins);
+                }
+            } else if ((key = valueNumber(ins)) != null) {
+                equivalent = available.get(key);
+                if (equivalent != null && !isAvailable(equivalent, ins)) {
+                    equivalent = null;
+                }
+                if (equivalent == null) {
+                    if (!shadowed.containsKey(key)) {
+                        shadowed.put(key, available.get(key));
+                    }
+                    available.put(key, ins);
+                }
+            }
+            if (equivalent != null) {
+                hirMap.put(ins.id, equivalent);
+                block.hir.remove((Integer) ins.id);
+            }
+        }
+        for (NBasicBlock child : children.get(block)) {
+            numberValues(child, children, available);
+        }
+        for (String key : shadowed.keySet()) {
+            if (shadowed.get(key) == null) {
+                available.remove(key);
+            } else {
+                available.put(key, shadowed.get(key));
+            }
+        }
+    }
+
+    /**
+     * Return the value number of an arithmetic, field load or array load
+     * instruction: its opcode (and field) and the value numbers of its
+     * operands. The value number of an operand is its constant value, if it
+     * is a constant, and its id otherwise.
+     * 
+     * @param ins
+     *            the instruction.
+     * @return the value number, or null if the instruction is not numbered.
+     */
+
+    private String valueNumber(NHIRInstruction ins) {
+        if (ins instanceof NHIRArithmetic) {
+            NHIRArithmetic arithmetic = (NHIRArithmetic) ins;
+            String lhs = operandNumber(arithmetic.lhs);
+            String rhs = operandNumber(arithmetic.rhs);
+            if (arithmetic.opcode != ISUB && lhs.compareTo(rhs) > 0) {
+                // + and * are commutative.
+                String t = lhs;
+                lhs = rhs;
+                rhs = t;
+            }
+            return arithmetic.opcode + " " + lhs + " " + rhs;
+        } else if (ins instanceof NHIRGetField) {
+            NHIRGetField getField = (NHIRGetField) ins;
+            return getField.opcode + " " + getField.target + "."
+                    + getField.name;
+        } else if (ins instanceof NHIRALoad) {
+            NHIRALoad aLoad = (NHIRALoad) ins;
+            return aLoad.opcode + " " + operandNumber(aLoad.arrayRef) + " "
+                    + operandNumber(aLoad.index);
+        }
+        return null;
+    }
+
+    /**
+     * Return the value number of an operand.
+     * 
+     * @param id
+     *            HIR id of the operand.
+     * @return the value number.
+     */
+
+    private String operandNumber(int id) {
+        NHIRInstruction ins = hirMap.get(id);
+        while (hirMap.get(ins.id) != ins) {
+            ins = hirMap.get(ins.id);
+        }
+        return ins instanceof NHIRIntConstant ? "#"
+                + ((NHIRIntConstant) ins).value : "" + ins.id;
+    }
+
+    /**
+     * Is the value computed by an instruction still available where an
+     * equivalent one, in the same block or in one it dominates, is? It is,
+     * unless the instructions are loads and a store or invocation that may
+     * change the value loaded lies on some path from the one to the other.
+     * 
+     * @param ins
+     *            the instruction.
+     * @param later
+     *            the equivalent instruction.
+     * @return true or false.
+     */
+
+    private boolean isAvailable(NHIRInstruction ins, NHIRInstruction later) {
+        if (ins instanceof NHIRArithmetic) {
+            return true;
+        }
+        NBasicBlock block = ins.block;
+        NBasicBlock laterBlock = later.block;
+        if (block == laterBlock) {
+            int from = block.hir.indexOf(ins.id);
+            int to = block.hir.indexOf(later.id);
+            return !kills(block, from + 1, to, ins);
+        }
+        if (kills(block, block.hir.indexOf(ins.id) + 1, block.hir.size(), ins)
+                || kills(laterBlock, 0, laterBlock.hir.indexOf(later.id),
+                        ins)) {
+            return false;
+        }
+
+        // Look at the blocks from which the later instruction can be
+        // reached without going through the earlier one's block.
+        HashSet<NBasicBlock> seen = new HashSet<NBasicBlock>();
+        Stack<NBasicBlock> stack = new Stack<NBasicBlock>();
+        stack.addAll(laterBlock.predecessors);
+        while (!stack.isEmpty()) {
+            NBasicBlock pred = stack.pop();
+            if (pred == block || !seen.add(pred)) {
+                continue;
+            }
+            if (kills(pred, 0, pred.hir.size(), ins)) {
+                return false;
+            }
+            stack.addAll(pred.predecessors);
+        }
+        return true;
+    }
+
+    /**
+     * May any of the instructions in a range of a block change the value
+     * loaded by a (field or array) load instruction? Invocations may change
+     * any; stores to the same field, or to an array of the same type, may
+     * change it.
+     * 
+     * @param block
+     *            the block.
+     * @param from
+     *            index (in the block's HIR) of the first instruction.
+     * @param to
+     *            index one past the last instruction.
+     * @param load
+     *            the load instruction.
+     * @return true or false.
+     */
+
+    private boolean kills(NBasicBlock block, int from, int to,
+            NHIRInstruction load) {
+        for (int i = from; i < to; i++) {
+            NHIRInstruction ins = hirMap.get(block.hir.get(i));
+            if (ins instanceof NHIRInvoke) {
+                return true;
+            } else if (ins instanceof NHIRPutField
+                    && load instanceof NHIRGetField) {
+                NHIRPutField putField = (NHIRPutField) ins;
+                NHIRGetField getField = (NHIRGetField) load;
+                if (putField.target.equals(getField.target)
+                        && putField.name.equals(getField.name)) {
+                    return true;
+                }
+            } else if (ins instanceof NHIRAStore && load instanceof NHIRALoad
+                    && ins.sType.equals(load.sType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loop-invariant code motion. The natural loop of each loop head found by
+     * detectLoops() is made of the head and the blocks from which the head's
+     * back edges (from blocks it dominates) can be reached without going
+     * through it. Inner loops first, the arithmetic and constants computed in
+     * a loop from values computed outside it are moved to the loop's
+     * preheader, as are the field loads of fields not stored to (and not
+     * possibly changed by an invocation) in the loop.
+     */
+
+    private void hoistLoopInvariants() {
+        ArrayList<NBasicBlock> heads = new ArrayList<NBasicBlock>();
+        ArrayList<Integer> sizes = new ArrayList<Integer>();
+        for (NBasicBlock block : basicBlocks) {
+            HashSet<NBasicBlock> loop = block.isLoopHead ? naturalLoop(block)
+                    : null;
+            if (loop == null) {
+                continue;
+            }
+
+            // Keep the heads ordered by loop size, so that inner loops
+            // come first.
+            int i = 0;
+            while (i < sizes.size() && sizes.get(i) <= loop.size()) {
+                i++;
+            }
+            heads.add(i, block);
+            sizes.add(i, loop.size());
+        }
+        for (NBasicBlock head : heads) {
+            // The loop is built afresh, since it may now contain the
+            // preheaders of inner loops.
+            hoistLoopInvariants(head, naturalLoop(head));
+        }
+        resolveAliases();
+    }
+
+    /**
+     * Move the invariant instructions of a loop to its preheader. Loops
+     * entered from more than one block are left alone.
+     * 
+     * @param head
+     *            the loop head.
+     * @param loop
+     *            the blocks of the loop.
+     */
+
+    private void hoistLoopInvariants(NBasicBlock head,
+            HashSet<NBasicBlock> loop) {
+        NBasicBlock entry = null;
+        for (NBasicBlock pred : head.predecessors) {
+            if (!loop.contains(pred)) {
+                if (entry != null) {
+                    return;
+                }
+                entry = pred;
+            }
+        }
+        if (entry == null) {
+            return;
+        }
+
+        // Note the fields that may be changed in the loop.
+        boolean invokes = false;
+        HashSet<String> storedFields = new HashSet<String>();
+        for (NBasicBlock block : loop) {
+            for (int id : block.hir) {
+                NHIRInstruction ins = hirMap.get(id);
+                if (ins instanceof NHIRInvoke) {
+                    invokes = true;
+                } else if (ins instanceof NHIRPutField) {
+                    storedFields.add(((NHIRPutField) ins).target + "."
+                            + ((NHIRPutField) ins).name);
+                }
+            }
+        }
+
+        // Find the invariant instructions, each after those whose
+        // values it uses.
+        ArrayList<NHIRInstruction> invariants =
+                new ArrayList<NHIRInstruction>();
+        HashSet<Integer> invariantIds = new HashSet<Integer>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (NBasicBlock block : basicBlocks) {
+                if (!loop.contains(block)) {
+                    continue;
+                }
+                for (int id : block.hir) {
+                    NHIRInstruction ins = hirMap.get(id);
+                    if (invariantIds.contains(ins.id)) {
+                        continue;
+                    }
+                    boolean invariant = ins instanceof NHIRArithmetic
+                            || ins instanceof NHIRIntConstant
+                            || ins instanceof NHIRStringConstant;
+                    if (ins instanceof NHIRGetField) {
+                        NHIRGetField load = (NHIRGetField) ins;
+                        invariant = !invokes
+                                && !storedFields.contains(load.target + "."
+                                        + load.name);
+                    }
+                    for (int operand : ins.operands()) {
+                        NHIRInstruction def = hirMap.get(operand);
+                        invariant &= !loop.contains(def.block)
+                                || invariantIds.contains(def.id);
+                    }
+                    if (invariant) {
+                        invariants.add(ins);
+                        invariantIds.add(ins.id);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        // A constant costs one instruction in the loop, but a register
+        // across all of it in the preheader; so constants are moved only if
+        // they are used by other instructions moved.
+        HashSet<Integer> used = new HashSet<Integer>();
+        for (NHIRInstruction ins : invariants) {
+            for (int operand : ins.operands()) {
+                used.add(hirMap.get(operand).id);
+            }
+        }
+        for (Iterator<NHIRInstruction> i = invariants.iterator(); i
+                .hasNext();) {
+            NHIRInstruction ins = i.next();
+            if ((ins instanceof NHIRIntConstant
+                    || ins instanceof NHIRStringConstant)
+                    && !used.contains(ins.id)) {
+                i.remove();
+            }
+        }
+
+        if (invariants.isEmpty()) {
+            return;
+        }
+
+        // Move them, sharing the constants in the preheader.
+        NBasicBlock preheader = preheader(head, entry);
+        if (preheader == null) {
+            return;
+        }
+        HashMap<Integer, NHIRInstruction> preheaderConstants =
+                new HashMap<Integer, NHIRInstruction>();
+        for (int id : preheader.hir) {
+            NHIRInstruction ins = hirMap.get(id);
+            if (ins instanceof NHIRIntConstant) {
+                preheaderConstants.put(((NHIRIntConstant) ins).value, ins);
+            }
+        }
+        for (NHIRInstruction ins : invariants) {
+            ins.block.hir.remove((Integer) ins.id);
+            NHIRInstruction constant = ins instanceof NHIRIntConstant
+                    ? preheaderConstants.get(((NHIRIntConstant) ins).value)
+                    : null;
+            if (constant != null) {
+                hirMap.put(ins.id, constant);
+                continue;
+            }
+            if (ins instanceof NHIRIntConstant) {
+                preheaderConstants.put(((NHIRIntConstant) ins).value, ins);
+            }
+            ins.block = preheader;
+            preheader.hir.add(ins.id);
+        }
+    }
+
+    /**
+     * Return the natural loop of a loop head: the head, and the blocks from
+     * which a back edge to it can be reached without going through it.
+     * 
+     * @param head
+     *            the loop head.
+     * @return the blocks of the loop, or null if no back edge reaches the
+     *         head.
+     */
+
+    private HashSet<NBasicBlock> naturalLoop(NBasicBlock head) {
+        HashSet<NBasicBlock> loop = new HashSet<NBasicBlock>();
+        Stack<NBasicBlock> stack = new Stack<NBasicBlock>();
+        for (NBasicBlock pred : head.predecessors) {
+            if (dominates(head, pred)) {
+                stack.push(pred);
+            }
+        }
+        if (stack.isEmpty()) {
+            return null;
+        }
+        loop.add(head);
+        while (!stack.isEmpty()) {
+            NBasicBlock block = stack.pop();
+            if (loop.add(block)) {
+                stack.addAll(block.predecessors);
+            }
+        }
+        return loop;
+    }
+
+    /**
+     * Does a block dominate another?
+     * 
+     * @param a
+     *            a block.
+     * @param b
+     *            another block.
+     * @return true or false.
+     */
+
+    private boolean dominates(NBasicBlock a, NBasicBlock b) {
+        for (NBasicBlock block = b; block != null; block = block.dom) {
+            if (block == a) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return a preheader for a loop: its entry block, if the head is the only
+     * block it falls through to, or else a new block between the entry and
+     * the head. Instructions added to a preheader are executed once, before
+     * the loop is entered.
+     * 
+     * @param head
+     *            the loop head.
+     * @param entry
+     *            the only block, outside the loop, leading to its head.
+     * @return the preheader, or null if the entry block's jump is not known.
+     */
+
+    private NBasicBlock preheader(NBasicBlock head, NBasicBlock entry) {
+        NHIRInstruction last = entry.hir.isEmpty() ? null : hirMap
+                .get(entry.hir.get(entry.hir.size() - 1));
+        if (entry.successors.size() == 1 && !(last instanceof NHIRGoto)) {
+            return entry;
+        }
+        if (!(last instanceof NHIRGoto)
+                && !(last instanceof NHIRConditionalJump)) {
+            return null;
+        }
+        NBasicBlock preheader = new NBasicBlock(this, blockId++);
+        if (last instanceof NHIRGoto) {
+            ((NHIRGoto) last).destination = preheader;
+        } else {
+            NHIRConditionalJump jump = (NHIRConditionalJump) last;
+            if (jump.onTrueDestination == head) {
+                jump.onTrueDestination = preheader;
+            }
+            if (jump.onFalseDestination == head) {
+                jump.onFalseDestination = preheader;
+            }
+        }
+        for (int i = 0; i < entry.successors.size(); i++) {
+            if (entry.successors.get(i) == head) {
+                entry.successors.set(i, preheader);
+            }
+        }
+        head.predecessors.set(head.predecessors.indexOf(entry), preheader);
+        preheader.predecessors.add(entry);
+        preheader.successors.add(head);
+        preheader.locals = entry.locals;
+        preheader.dom = head.dom;
+        head.dom = preheader;
+
+        // The preheader falls through to the head.
+        basicBlocks.add(basicBlocks.indexOf(head), preheader);
+        return preheader;
+    }
+
+    /**
+     * Make the ids standing for instructions that have been replaced (by
+     * eliminateRedundantPhiFunctions() or an optimization) map directly to
+     * the instructions that replaced them.
+     */
+
+    private void resolveAliases() {
+        for (int id : hirMap.keySet()) {
+            NHIRInstruction ins = hirMap.get(id);
+            while (hirMap.get(ins.id) != ins) {
+                ins = hirMap.get(ins.id);
+            }
+            hirMap.put(id, ins);
+        }
+    }
+
+    /**
+     * Mark-sweep dead code elimination. The instructions in the blocks that
+     * do more than compute a value (jumps, returns, invocations, stores, and
+     * allocations and array loads, which may throw) are live, and so are the
+     * instructions whose values live instructions use. All others, including
+     * cycles of phi functions using only one another, are removed, so that
+     * they are not given registers.
+     */
+
+    private void eliminateDeadCode() {
+        HashSet<Integer> live = new HashSet<Integer>();
+        Stack<NHIRInstruction> stack = new Stack<NHIRInstruction>();
+        for (NBasicBlock block : basicBlocks) {
+            for (int id : block.hir) {
+                NHIRInstruction ins = hirMap.get(id);
+                if (!isPure(ins) && live.add(ins.id)) {
+                    stack.push(ins);
+                }
+            }
+        }
+        while (!stack.isEmpty()) {
+            for (int operand : stack.pop().operands()) {
+                NHIRInstruction def = hirMap.get(operand);
+                if (live.add(def.id)) {
+                    stack.push(def);
+                }
+            }
+        }
+        Iterator<NHIRInstruction> it = hirMap.values().iterator();
+        while (it.hasNext()) {
+            NHIRInstruction ins = it.next();
+            if (!live.contains(ins.id)) {
+                ins.block.hir.remove((Integer) ins.id);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Does an instruction do nothing but compute its value?
+     * 
+     * @param ins
+     *            the instruction.
+     * @return true or false.
+     */
+
+    private boolean isPure(NHIRInstruction ins) {
+        return ins instanceof NHIRArithmetic || ins instanceof NHIRIntConstant
+                || ins instanceof NHIRStringConstant
+                || ins instanceof NHIRGetField
+                || ins instanceof NHIRPhiFunction
+                || ins instanceof NHIRLoadLocal || ins instanceof NHIRLocal;
+    }
+
+    /**
+     * Visit the instructions of a block newly found executable, and then its
+     * jump.
+     * 
+     * @param block
+     *            the block.
+     * @param edges
+     *            edges found executable.
+     * @param changed
+     *            instructions whose lattice value has changed.
+     */
+
+    private void visitBlock(NBasicBlock block, Queue<NBasicBlock[]> edges,
+            Queue<Integer> changed) {
+        for (int id : block.hir) {
+            if (!(hirMap.get(id) instanceof NHIRConditionalJump)) {
+                visitInstruction(hirMap.get(id), changed);
+            }
+        }
+        visitJump(block, edges);
+    }
+
+    /**
+     * Evaluate the lattice value of an instruction in an executable block,
+     * recording it as changed if it has been lowered.
+     * 
+     * @param ins
+     *            the instruction.
+     * @param changed
+     *            instructions whose lattice value has changed.
+     */
+
+    private void visitInstruction(NHIRInstruction ins, Queue<Integer> changed) {
+        int value = BOTTOM, constant = 0;
+        if (ins instanceof NHIRIntConstant) {
+            value = CONSTANT;
+            constant = ((NHIRIntConstant) ins).value;
+        } else if (ins instanceof NHIRArithmetic) {
+            NHIRArithmetic arithmetic = (NHIRArithmetic) ins;
+            int lhs = hirMap.get(arithmetic.lhs).id;
+            int rhs = hirMap.get(arithmetic.rhs).id;
+            value = Math.max(lattice[lhs], lattice[rhs]);
+            if (lattice[lhs] == TOP || lattice[rhs] == TOP) {
+                value = value == BOTTOM ? BOTTOM : TOP;
+            } else if (value == CONSTANT) {
+                constant = fold(arithmetic.opcode, constants[lhs],
+                        constants[rhs]);
+            }
+        } else if (ins instanceof NHIRPhiFunction) {
+            NHIRPhiFunction phi = (NHIRPhiFunction) ins;
+            NBasicBlock block = phi.block;
+
+            // Arguments correspond to the predecessors, unless the
+            // block merges more than two; then all are taken.
+            boolean positional = phi.arguments.size() == block.predecessors
+                    .size();
+            value = TOP;
+            for (int i = 0; i < phi.arguments.size() && value != BOTTOM; i++) {
+                if (positional
+                        && !reached.get(block).contains(
+                                block.predecessors.get(i))) {
+                    continue;
+                }
+                int arg = hirMap.get(phi.arguments.get(i)).id;
+                if (lattice[arg] == TOP) {
+                    continue;
+                }
+                if (value == TOP) {
+                    value = lattice[arg];
+                    constant = constants[arg];
+                } else if (lattice[arg] == BOTTOM
+                        || constants[arg] != constant) {
+                    value = BOTTOM;
+                }
+            }
+        } else if (ins instanceof NHIRLocal) {
+            value = TOP;
+        }
+        if (value != lattice[ins.id]) {
+            lattice[ins.id] = value;
+            constants[ins.id] = constant;
+            changed.add(ins.id);
+        }
+    }
+
+    /**
+     * Record as executable the edges out of an executable block that its jump
+     * may take. An operand not known to have a value is taken to have any.
+     * 
+     * @param block
+     *            the block.
+     * @param edges
+     *            edges found executable.
+     */
+
+    private void visitJump(NBasicBlock block, Queue<NBasicBlock[]> edges) {
+        NHIRInstruction last = block.hir.isEmpty() ? null : hirMap.get(block.hir
+                .get(block.hir.size() - 1));
+        if (last instanceof NHIRReturn) {
+            return;
+        } else if (last instanceof NHIRGoto) {
+            edges.add(new NBasicBlock[] { block,
+                    ((NHIRGoto) last).destination });
+        } else if (last instanceof NHIRConditionalJump
+                && hasConstantOperands((NHIRConditionalJump) last)) {
+            NHIRConditionalJump jump = (NHIRConditionalJump) last;
+            edges.add(new NBasicBlock[] {
+                    block,
+                    isTaken(jump) ? jump.onTrueDestination
+                            : jump.onFalseDestination });
+        } else {
+            for (NBasicBlock succ : block.successors) {
+                edges.add(new NBasicBlock[] { block, succ });
+            }
+        }
+    }
+
+    /**
+     * Are both operands of a conditional jump known to be constant?
+     * 
+     * @param jump
+     *            the conditional jump.
+     * @return true or false.
+     */
+
+    private boolean hasConstantOperands(NHIRConditionalJump jump) {
+        return lattice[hirMap.get(jump.lhs).id] == CONSTANT
+                && lattice[hirMap.get(jump.rhs).id] == CONSTANT;
+    }
+
+    /**
+     * Is a conditional jump with constant operands taken?
+     * 
+     * @param jump
+     *            the conditional jump.
+     * @return true or false.
+     */
+
+    private boolean isTaken(NHIRConditionalJump jump) {
+        int lhs = constants[hirMap.get(jump.lhs).id];
+        int rhs = constants[hirMap.get(jump.rhs).id];
+        switch (jump.opcode) {
+        case IF_ICMPNE:
+            return lhs != rhs;
+        case IF_ICMPGT:
+            return lhs > rhs;
+        default: // IF_ICMPLE
+            return lhs <= rhs;
+        }
+    }
+
+    /**
+     * Return the result of an arithmetic operation on constants.
+     * 
+     * @param opcode
+     *            opcode for the operator.
+     * @param lhs
+     *            lhs value.
+     * @param rhs
+     *            rhs value.
+     * @return the result.
+     */
+
+    private int fold(int opcode, int lhs, int rhs) {
+        switch (opcode) {
+        case IADD:
+            return lhs + rhs;
+        case ISUB:
+            return lhs - rhs;
+        default: // IMUL
+            return lhs * rhs;
+        }
+    }
+
+    /**
+     * Can the edge from a block to a successor be removed? It can unless the
+     * successor has phi functions whose arguments do not correspond to its
+     * predecessors.
+     * 
+     * @param block
+     *            the block.
+     * @param succ
+     *            the successor.
+     * @return true or false.
+     */
+
+    private boolean canRemoveEdge(NBasicBlock block, NBasicBlock succ) {
+        for (int id : succ.hir) {
+            NHIRInstruction ins = hirMap.get(id);
+            if (ins instanceof NHIRPhiFunction
+                    && ((NHIRPhiFunction) ins).arguments.size() != succ
+                            .predecessors.size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove the edge from a block to a successor, along with the
+     * corresponding arguments of the successor's phi functions. A phi function
+     * left with a single argument is replaced by it.
+     * 
+     * @param block
+     *            the block.
+     * @param succ
+     *            the successor.
+     */
+
+    private void removeEdge(NBasicBlock block, NBasicBlock succ) {
+        int i = succ.predecessors.indexOf(block);
+        for (int id : new ArrayList<Integer>(succ.hir)) {
+            if (!(hirMap.get(id) instanceof NHIRPhiFunction)) {
+                continue;
+            }
+            NHIRPhiFunction phi = (NHIRPhiFunction) hirMap.get(id);
+            if (phi.arguments.size() != succ.predecessors.size()) {
+                continue;
+            }
+            phi.arguments.remove(i);
+            if (phi.arguments.size() == 1) {
+                hirMap.put(phi.id, hirMap.get(phi.arguments.get(0)));
+                succ.hir.remove((Integer) phi.id);
+            }
+        }
+        block.successors.remove(succ);
+        succ.predecessors.remove(i);
     }
 
     /**
@@ -1212,7 +2188,10 @@ class NControlFlowGraph {
      * Resolve the phi functions in this cfg, i.e., for each x = phi(x1, x2,
      * ..., xn) generate an (LIR) move xi, x instruction at the end of the
      * predecessor i of thte block defining the phi function; if the instruction
-     * there is a branch, add the instruction prior to the branch.
+     * there is a branch, add the instruction prior to the branch. A
+     * predecessor that branches elsewhere too would do the move on either
+     * path, so the edge from it is first split by a new block, which does the
+     * moves.
      */
 
     public void resolvePhiFunctions() {
@@ -1227,11 +2206,16 @@ class NControlFlowGraph {
                         continue;
                     }
                     NBasicBlock targetBlock = block.predecessors.get(i);
-                    NLIRMove move = new NLIRMove(arg.block, lirId++, arg.lir,
-                            phi.lir);
-                    int len = targetBlock.hir.size();
-                    if (hirMap.get(targetBlock.hir.get(len - 1)) instanceof NHIRGoto
-                            || hirMap.get(targetBlock.hir.get(len - 1)) instanceof NHIRConditionalJump) {
+                    if (targetBlock.successors.size() > 1) {
+                        targetBlock = splitEdge(targetBlock, block);
+                    }
+                    NLIRMove move = new NLIRMove(targetBlock, lirId++,
+                            arg.lir, phi.lir);
+                    int len = targetBlock.lir.size();
+                    NLIRInstruction last = len == 0 ? null : targetBlock.lir
+                            .get(len - 1);
+                    if (last instanceof NLIRGoto
+                            || last instanceof NLIRConditionalJump) {
                         targetBlock.lir.add(len - 1, move);
                     } else {
                         targetBlock.lir.add(move);
@@ -1242,11 +2226,194 @@ class NControlFlowGraph {
     }
 
     /**
-     * Compute optimal ordering of the basic blocks in this cfg.
+     * Split an edge (from a block that ends with a conditional jump) by a new,
+     * empty block, which falls through to the block the edge goes to. The
+     * new block takes the place of the block the edge comes from among the
+     * predecessors of the other, so the arguments of its phi functions stay
+     * in the same order.
+     * 
+     * @param from
+     *            the block the edge comes from.
+     * @param to
+     *            the block the edge goes to.
+     * @return the new block, or from if it does not end with a conditional
+     *         jump to to alone.
+     */
+
+    private NBasicBlock splitEdge(NBasicBlock from, NBasicBlock to) {
+        int len = from.lir.size();
+        NLIRInstruction last = len == 0 ? null : from.lir.get(len - 1);
+        if (!(last instanceof NLIRConditionalJump)
+                || from.successors.indexOf(to) != from.successors
+                        .lastIndexOf(to)) {
+            return from;
+        }
+        NBasicBlock block = new NBasicBlock(this, blockId++);
+        NLIRConditionalJump jump = (NLIRConditionalJump) last;
+        if (jump.onTrueDestination == to) {
+            jump.onTrueDestination = block;
+        } else {
+            jump.onFalseDestination = block;
+        }
+        from.successors.set(from.successors.indexOf(to), block);
+        to.predecessors.set(to.predecessors.indexOf(from), block);
+        block.predecessors.add(from);
+        block.successors.add(to);
+        block.dom = from;
+        basicBlocks.add(basicBlocks.indexOf(from) + 1, block);
+        return block;
+    }
+
+    /**
+     * Compute optimal ordering of the basic blocks in this cfg. The blocks are
+     * laid out in reverse postorder, the successors of a block that leave a
+     * loop it is in being visited first, so that loop bodies are contiguous,
+     * and its original fall-through successor last, so that it comes right
+     * after the block. A loop whose body ends with the jump back to its head
+     * is then rotated, the head being moved after the body, which thus falls
+     * through to the loop test. Finally, jumps to the next block are removed
+     * (and conditional jumps negated where that makes the next block the one
+     * jumped to on false), and jumps are added where a block no longer falls
+     * through to its successor.
      */
 
     public void orderBlocks() {
-        // TBD
+        ArrayList<NBasicBlock> heads = new ArrayList<NBasicBlock>();
+        HashMap<NBasicBlock, HashSet<NBasicBlock>> loops =
+                new HashMap<NBasicBlock, HashSet<NBasicBlock>>();
+        for (NBasicBlock block : basicBlocks) {
+            HashSet<NBasicBlock> loop = block.isLoopHead ? naturalLoop(block)
+                    : null;
+            if (loop != null) {
+                heads.add(block);
+                loops.put(block, loop);
+            }
+        }
+        for (NBasicBlock block : basicBlocks) {
+            block.loopDepth = 0;
+        }
+        for (NBasicBlock head : heads) {
+            for (NBasicBlock block : loops.get(head)) {
+                block.loopDepth++;
+            }
+        }
+        ArrayList<NBasicBlock> order = new ArrayList<NBasicBlock>();
+        postorder(basicBlocks.get(0), loops, new HashSet<NBasicBlock>(), order);
+        Collections.reverse(order);
+        for (NBasicBlock block : basicBlocks) {
+            // Blocks left unreachable by optimizations.
+            if (!order.contains(block)) {
+                order.add(block);
+            }
+        }
+        for (NBasicBlock head : heads) {
+            rotateLoop(head, loops.get(head), order);
+        }
+        basicBlocks = order;
+        for (int i = 0; i < basicBlocks.size(); i++) {
+            layoutJump(basicBlocks.get(i), i + 1 < basicBlocks.size()
+                    ? basicBlocks.get(i + 1) : null);
+        }
+    }
+
+    /**
+     * Add a block, after its successors, to a postorder of the blocks.
+     * 
+     * @param block
+     *            the block.
+     * @param loops
+     *            the natural loops, by their heads.
+     * @param visited
+     *            the blocks visited so far.
+     * @param order
+     *            the postorder.
+     */
+
+    private void postorder(NBasicBlock block,
+            HashMap<NBasicBlock, HashSet<NBasicBlock>> loops,
+            HashSet<NBasicBlock> visited, ArrayList<NBasicBlock> order) {
+        visited.add(block);
+        ArrayList<NBasicBlock> exits = new ArrayList<NBasicBlock>();
+        ArrayList<NBasicBlock> others = new ArrayList<NBasicBlock>();
+        for (int i = block.successors.size() - 1; i >= 0; i--) {
+            NBasicBlock succ = block.successors.get(i);
+            boolean exit = false;
+            for (HashSet<NBasicBlock> loop : loops.values()) {
+                exit |= loop.contains(block) && !loop.contains(succ);
+            }
+            (exit ? exits : others).add(succ);
+        }
+        exits.addAll(others);
+        for (NBasicBlock succ : exits) {
+            if (!visited.contains(succ)) {
+                postorder(succ, loops, visited, order);
+            }
+        }
+        order.add(block);
+    }
+
+    /**
+     * Move the head of a loop after its body, if the body is laid out
+     * contiguously after the head and ends with the jump back to it.
+     * 
+     * @param head
+     *            the loop head.
+     * @param loop
+     *            the blocks of the loop.
+     * @param order
+     *            the block order.
+     */
+
+    private void rotateLoop(NBasicBlock head, HashSet<NBasicBlock> loop,
+            ArrayList<NBasicBlock> order) {
+        int first = order.indexOf(head);
+        int last = first + loop.size() - 1;
+        if (first <= 0 || last >= order.size()) {
+            return;
+        }
+        for (int i = first; i <= last; i++) {
+            if (!loop.contains(order.get(i))) {
+                return;
+            }
+        }
+        NBasicBlock tail = order.get(last);
+        NLIRInstruction jump = tail.lir.isEmpty() ? null : tail.lir
+                .get(tail.lir.size() - 1);
+        if (jump instanceof NLIRGoto && ((NLIRGoto) jump).destination == head) {
+            order.remove(first);
+            order.add(last, head);
+        }
+    }
+
+    /**
+     * Make the jump ending a block agree with the block laid out after it.
+     * 
+     * @param block
+     *            the block.
+     * @param next
+     *            the block after it, or null.
+     */
+
+    private void layoutJump(NBasicBlock block, NBasicBlock next) {
+        int len = block.lir.size();
+        NLIRInstruction last = len == 0 ? null : block.lir.get(len - 1);
+        if (last instanceof NLIRGoto) {
+            if (((NLIRGoto) last).destination == next) {
+                block.lir.remove(len - 1);
+            }
+        } else if (last instanceof NLIRConditionalJump) {
+            NLIRConditionalJump jump = (NLIRConditionalJump) last;
+            if (jump.onTrueDestination == next
+                    && jump.onFalseDestination != next) {
+                jump.negate();
+            }
+            jump.fallsThrough = jump.onFalseDestination == next;
+        } else if (!(last instanceof NLIRReturn)
+                && block.successors.size() == 1
+                && block.successors.get(0) != next) {
+            block.lir.add(new NLIRGoto(block, lirId++, block.successors
+                    .get(0)));
+        }
     }
 
     /**
@@ -1301,6 +2468,65 @@ class NControlFlowGraph {
         }
     }
 
+    /**
+     * Remove the moves from a (physical) register to itself, where register
+     * allocation has assigned the same register to both sides of a move.
+     * Jumps to a block left with nothing but a jump (or with nothing at all)
+     * are then made to go straight to where it goes.
+     */
+
+    public void removeSelfMoves() {
+        for (NBasicBlock block : basicBlocks) {
+            ArrayList<NLIRInstruction> newLir =
+                    new ArrayList<NLIRInstruction>();
+            for (NLIRInstruction lir : block.lir) {
+                if (!(lir instanceof NLIRMove)
+                        || lir.reads.get(0).number() != lir.write.number()) {
+                    newLir.add(lir);
+                }
+            }
+            block.lir = newLir;
+        }
+        for (NBasicBlock block : basicBlocks) {
+            int len = block.lir.size();
+            NLIRInstruction last = len == 0 ? null : block.lir.get(len - 1);
+            if (last instanceof NLIRGoto) {
+                NLIRGoto jump = (NLIRGoto) last;
+                jump.destination = jumpTarget(jump.destination);
+            } else if (last instanceof NLIRConditionalJump) {
+                NLIRConditionalJump jump = (NLIRConditionalJump) last;
+                jump.onTrueDestination = jumpTarget(jump.onTrueDestination);
+                if (!jump.fallsThrough) {
+                    jump.onFalseDestination = jumpTarget(jump
+                            .onFalseDestination);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the block a jump to a given block may as well go to, skipping
+     * blocks that do nothing but jump (or fall through) to another.
+     * 
+     * @param block
+     *            the block jumped to.
+     * @return the block to jump to.
+     */
+
+    private NBasicBlock jumpTarget(NBasicBlock block) {
+        for (int i = 0; i < basicBlocks.size(); i++) {
+            if (block.lir.isEmpty() && block.successors.size() == 1) {
+                block = block.successors.get(0);
+            } else if (block.lir.size() == 1
+                    && block.lir.get(0) instanceof NLIRGoto) {
+                block = ((NLIRGoto) block.lir.get(0)).destination;
+            } else {
+                break;
+            }
+        }
+        return block;
+    }
+
     /**
      * Write the tuples in this cfg to STDOUT.
      * 
@@ -54,10 +54,10 @@ public class NEmitter {
 
     /**
      * Emits SPIM code to setup a stack frame for the procedure denoted by cfg.
-     * This involves saving the return address (ra), saving the frame pointer
-     * (fp), saving any physical registers (t0, ..., t9, s0, ..., s7) used by
-     * the procedure, and setting up the new value for fp (i.e. pushing a stack
-     * frame).
+     * This involves saving the return address (ra) if the procedure invokes
+     * others, saving the frame pointer (fp), saving any physical registers
+     * (t0, ..., t9, s0, ..., s7) used by the procedure, and setting up the new
+     * value for fp (i.e. pushing a stack frame).
      * 
      * @param cfg
      *            the control flow graph instance.
@@ -70,8 +70,10 @@ public class NEmitter {
         out.printf(
                 "    subu    $sp,$sp,%d \t # Stack frame is %d bytes long\n",
                 frameSize, frameSize);
-        out.printf("    sw      $ra,%d($sp) \t # Save return address\n",
-                frameSize - 4);
+        if (invokesMethods(cfg)) {
+            out.printf("    sw      $ra,%d($sp) \t # Save return address\n",
+                    frameSize - 4);
+        }
         out.printf("    sw      $fp,%d($sp) \t # Save frame pointer\n",
                 frameSize - 8);
         int i = 12;
@@ -85,12 +87,32 @@ public class NEmitter {
         out.println();
     }
 
+    /**
+     * Does the procedure denoted by cfg invoke any (so that its return address
+     * must be saved)? Its frame has a slot for the return address regardless.
+     * 
+     * @param cfg
+     *            the control flow graph instance.
+     * @return true or false.
+     */
+
+    private boolean invokesMethods(NControlFlowGraph cfg) {
+        for (NBasicBlock block : cfg.basicBlocks) {
+            for (NLIRInstruction lir : block.lir) {
+                if (lir instanceof NLIRInvoke) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Emits SPIM code to pop the stack frame that was setup for the procedure
-     * denoted by cfg. This involves restoring the return address (ra), the
-     * frame pointer (fp), any physical registers (t0, ..., t9, s0, ..., s7)
-     * used by the procedure, setting fp to the restored value (i.e. popping the
-     * stack frame), and finally jumping to ra (the caller).
+     * denoted by cfg. This involves restoring the return address (ra) if it
+     * was saved, the frame pointer (fp), any physical registers (t0, ..., t9,
+     * s0, ..., s7) used by the procedure, setting fp to the restored value
+     * (i.e. popping the stack frame), and finally jumping to ra (the caller).
      * 
      * @param cfg
      *            the control flow graph instance.
@@ -101,8 +123,10 @@ public class NEmitter {
     private void popStackFrame(NControlFlowGraph cfg, PrintWriter out) {
         int frameSize = cfg.pRegisters.size() * 4 + cfg.offset * 4 + 8;
         out.printf("%s.restore:\n", cfg.labelPrefix);
-        out.printf("    lw      $ra,%d($sp) \t # Restore return address\n",
-                frameSize - 4);
+        if (invokesMethods(cfg)) {
+            out.printf("    lw      $ra,%d($sp) \t # Restore return address\n",
+                    frameSize - 4);
+        }
         out.printf("    lw      $fp,%d($sp) \t # Restore frame pointer\n",
                 frameSize - 8);
         int i = 12;
@@ -131,6 +155,13 @@ public class NEmitter {
         this.sourceFile = sourceFile.substring(sourceFile
                 .lastIndexOf(File.separator) + 1);
         classes = new HashMap<CLFile, HashMap<CLMethodInfo, NControlFlowGraph>>();
+        if (ra.equals("graph") && NPhysicalRegister.MAX_COUNT < 2) {
+            // Two registers are needed for the operands of an instruction
+            // once they have been spilled.
+            reportEmitterError("%s: graph coloring needs at least 2 registers",
+                    this.sourceFile);
+            return;
+        }
         for (CLFile clFile : clFiles) {
             CLConstantPool cp = clFile.constantPool;
             HashMap<CLMethodInfo, NControlFlowGraph> methods = new HashMap<CLMethodInfo, NControlFlowGraph>();
@@ -213,6 +244,9 @@ public class NEmitter {
                 // instructions with references to physical registers.
                 cfg.allocatePhysicalRegisters();
 
+                // Remove the moves left moving a register to itself.
+                cfg.removeSelfMoves();
+
                 // Write the LIR instructions in cfg to STDOUT.
                 cfg.writeLirToStdOut(p);
             }
@@ -246,9 +280,13 @@ public class NEmitter {
     /**
      * Write out SPIM file(s) to the file system. The destination directory for
      * the files can be set using the destinationDir(String dir) method.
+     * Nothing is written if an error has occurred.
      */
 
     public void write() {
+        if (errorHasOccurred) {
+            return;
+        }
         String file = "";
         try {
             file = destDir + File.separator + sourceFile.replace(".java", ".s");
@@ -3,22 +3,57 @@
 package jminusminus;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Stack;
+import static jminusminus.NPhysicalRegister.*;
 
 /**
- * Implements register allocation using graph coloring algorithm.
+ * Implements register allocation using graph coloring algorithm (Chaitin, as
+ * improved by Briggs). The virtual registers are the nodes of an interference
+ * graph, in which two are adjacent if one is written to where the other is
+ * live. The registers related by moves are coalesced, when that cannot make
+ * the graph harder to color. The graph is then simplified, removing the nodes
+ * with fewer neighbors than there are physical registers, or else the one
+ * cheapest to spill (its uses weighted by their loop depths) for its degree,
+ * and colored in the reverse order. The registers that cannot be colored are
+ * spilled to the stack: each use of one is preceded by a load into a new
+ * (short lived) register, and each write followed by a store. The whole
+ * process is then repeated on the new code, until every register is colored.
  */
 
 public class NGraphRegisterAllocator extends NRegisterAllocator {
 
+    /** The neighbors of each register in the interference graph. */
+    private ArrayList<HashSet<Integer>> adjacent;
+
+    /** The register each one has been coalesced into (itself, if none). */
+    private ArrayList<Integer> alias;
+
+    /** The cost of spilling each register. */
+    private ArrayList<Double> cost;
+
+    /** The pairs of registers related by moves (destination, source). */
+    private ArrayList<int[]> moves;
+
+    /** Registers introduced by spilling, which are not to be spilled. */
+    private BitSet unspillable;
+
+    /** The color (physical register) of each register, or -1. */
+    private int[] color;
+
     /**
      * Construct a NGraphRegisterAllocator.
-     * 
+     *
      * @param cfg
      *            an instance of a control flow graph.
      */
 
     public NGraphRegisterAllocator(NControlFlowGraph cfg) {
         super(cfg);
+        unspillable = new BitSet();
     }
 
     /**
@@ -26,7 +61,380 @@ public class NGraphRegisterAllocator extends NRegisterAllocator {
      */
 
     public void allocation() {
+        // Formal parameters fourth and above are on the frame (relative
+        // to fp) already.
+        for (NBasicBlock block : cfg.basicBlocks) {
+            for (NLIRInstruction lir : new ArrayList<NLIRInstruction>(
+                    block.lir)) {
+                if (lir instanceof NLIRLoadLocal
+                        && ((NLIRLoadLocal) lir).local >= 4) {
+                    block.lir.remove(lir);
+                    spill(lir.write.number(), ((NLIRLoadLocal) lir).local - 3,
+                            OffsetFrom.FP);
+                }
+            }
+        }
+
+        ArrayList<Integer> spilled;
+        do {
+            computeLiveness();
+            buildInterferenceGraph();
+            coalesce();
+            spilled = color();
+            assignSpillSlots(spilled);
+        } while (!spilled.isEmpty());
+
+        // The intervals (for the registers added in spilling, too) serve
+        // only to map the registers, and to show the allocation.
+        cfg.renumberLirInstructions();
+        cfg.intervals = new ArrayList<NInterval>();
+        for (int i = 0; i < cfg.registers.size(); i++) {
+            cfg.intervals.add(new NInterval(i, cfg));
+        }
+        cfg.maxIntervals = cfg.intervals.size();
         buildIntervals();
+
+        // Allocate any fixed registers (a0, ..., a3 and v0) that were
+        // assigned during generation phase to the appropriate
+        // interval, and the colors to the others.
+        for (int i = 0; i < 32; i++) {
+            if (cfg.registers.get(i) != null) {
+                cfg.intervals.get(i).pRegister = (NPhysicalRegister) cfg.registers
+                        .get(i);
+            }
+        }
+        for (int i = 32; i < cfg.registers.size(); i++) {
+            if (cfg.registers.get(i) != null) {
+                NPhysicalRegister pRegister = NPhysicalRegister.regInfo[T0
+                        + color[find(i)]];
+                cfg.intervals.get(i).pRegister = pRegister;
+                if (!cfg.pRegisters.contains(pRegister)) {
+                    cfg.pRegisters.add(pRegister);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the interference graph, from the registers live after each
+     * instruction (computed in building the intervals), noting the spill
+     * costs and the moves along the way. The register written to by an
+     * instruction interferes with those live after it, except for the source
+     * of a move.
+     */
+
+    private void buildInterferenceGraph() {
+        int size = cfg.registers.size();
+        adjacent = new ArrayList<HashSet<Integer>>();
+        alias = new ArrayList<Integer>();
+        cost = new ArrayList<Double>();
+        moves = new ArrayList<int[]>();
+        for (int i = 0; i < size; i++) {
+            adjacent.add(new HashSet<Integer>());
+            alias.add(i);
+            cost.add(0.0);
+        }
+        for (NBasicBlock block : cfg.basicBlocks) {
+            double weight = Math.pow(10, block.loopDepth);
+            BitSet live = (BitSet) block.liveOut.clone();
+            for (int j = block.lir.size() - 1; j >= 0; j--) {
+                NLIRInstruction lir = block.lir.get(j);
+                if (lir.write != null) {
+                    int def = lir.write.number();
+                    if (def >= 32) {
+                        int source = -1;
+                        if (lir instanceof NLIRMove
+                                && lir.reads.get(0).number() >= 32) {
+                            source = lir.reads.get(0).number();
+                            moves.add(new int[] { def, source });
+                        }
+                        for (int i = live.nextSetBit(32); i >= 0; i = live
+                                .nextSetBit(i + 1)) {
+                            if (i != def && i != source) {
+                                adjacent.get(def).add(i);
+                                adjacent.get(i).add(def);
+                            }
+                        }
+                        cost.set(def, cost.get(def) + weight);
+                    }
+                    live.clear(def);
+                }
+                for (NRegister reg : lir.reads) {
+                    live.set(reg.number());
+                    if (reg.number() >= 32) {
+                        cost.set(reg.number(), cost.get(reg.number())
+                                + weight);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Coalesce the registers related by moves that do not interfere, where
+     * (by Briggs' test) the combined register has fewer neighbors of
+     * significant degree than there are physical registers. Registers
+     * introduced by spilling are not coalesced.
+     */
+
+    private void coalesce() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int[] move : moves) {
+                int a = find(move[0]);
+                int b = find(move[1]);
+                if (a == b || adjacent.get(a).contains(b)
+                        || unspillable.get(a) || unspillable.get(b)) {
+                    continue;
+                }
+                HashSet<Integer> neighbors = new HashSet<Integer>(
+                        adjacent.get(a));
+                neighbors.addAll(adjacent.get(b));
+                int significant = 0;
+                for (int n : neighbors) {
+                    if (adjacent.get(n).size() >= NPhysicalRegister.MAX_COUNT) {
+                        significant++;
+                    }
+                }
+                if (significant >= NPhysicalRegister.MAX_COUNT) {
+                    continue;
+                }
+                alias.set(b, a);
+                for (int n : adjacent.get(b)) {
+                    adjacent.get(n).remove(b);
+                    adjacent.get(n).add(a);
+                    adjacent.get(a).add(n);
+                }
+                adjacent.get(b).clear();
+                cost.set(a, cost.get(a) + cost.get(b));
+                changed = true;
+            }
+        }
+    }
+
+    /**
+     * Return the register a register has been coalesced into.
+     *
+     * @param reg
+     *            the register number.
+     * @return the number of the register it has been coalesced into.
+     */
+
+    private int find(int reg) {
+        while (alias.get(reg) != reg) {
+            reg = alias.get(reg);
+        }
+        return reg;
+    }
+
+    /**
+     * Simplify the interference graph and color it.
+     *
+     * @return the registers that could not be colored, and so are to be
+     *         spilled.
+     */
+
+    private ArrayList<Integer> color() {
+        int size = cfg.registers.size();
+        int[] degree = new int[size];
+        BitSet remaining = new BitSet();
+        LinkedList<Integer> simplifiable = new LinkedList<Integer>();
+        for (int i = 32; i < size; i++) {
+            if (cfg.registers.get(i) != null && find(i) == i) {
+                remaining.set(i);
+                degree[i] = adjacent.get(i).size();
+                if (degree[i] < NPhysicalRegister.MAX_COUNT) {
+                    simplifiable.add(i);
+                }
+            }
+        }
+
+        // Remove the nodes in turn; those of significant degree (when no
+        // other is left) may yet be colored.
+        Stack<Integer> stack = new Stack<Integer>();
+        boolean[] onStack = new boolean[size];
+        while (!remaining.isEmpty()) {
+            int node = -1;
+            while (!simplifiable.isEmpty() && node == -1) {
+                int candidate = simplifiable.remove();
+                if (remaining.get(candidate)) {
+                    node = candidate;
+                }
+            }
+            if (node == -1) {
+                node = spillCandidate(remaining, degree);
+            }
+            remaining.clear(node);
+            stack.push(node);
+            onStack[node] = true;
+            for (int n : adjacent.get(node)) {
+                if (remaining.get(n)
+                        && --degree[n] == NPhysicalRegister.MAX_COUNT - 1) {
+                    simplifiable.add(n);
+                }
+            }
+        }
+
+        color = new int[size];
+        ArrayList<Integer> spilled = new ArrayList<Integer>();
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            onStack[node] = false;
+            boolean[] used = new boolean[NPhysicalRegister.MAX_COUNT];
+            for (int n : adjacent.get(node)) {
+                if (color[n] >= 0 && !onStack[n]) {
+                    used[color[n]] = true;
+                }
+            }
+            color[node] = -1;
+            for (int c = 0; c < used.length && color[node] == -1; c++) {
+                if (!used[c]) {
+                    color[node] = c;
+                }
+            }
+            if (color[node] == -1) {
+                // The registers introduced by spilling are live only
+                // between two neighbouring instructions, and so are always
+                // colored given at least two registers (see NEmitter).
+                spilled.add(node);
+            }
+        }
+        return spilled;
+    }
+
+    /**
+     * Return the remaining node cheapest to spill for its degree, preferring
+     * not to spill the registers introduced by spilling.
+     *
+     * @param remaining
+     *            the nodes remaining in the graph.
+     * @param degree
+     *            the degree of each node in the remaining graph.
+     * @return the spill candidate.
+     */
+
+    private int spillCandidate(BitSet remaining, int[] degree) {
+        int candidate = -1;
+        for (int i = remaining.nextSetBit(0); i >= 0; i = remaining
+                .nextSetBit(i + 1)) {
+            if (candidate == -1
+                    || unspillable.get(candidate) && !unspillable.get(i)
+                    || unspillable.get(candidate) == unspillable.get(i)
+                    && cost.get(i) / degree[i] < cost.get(candidate)
+                            / degree[candidate]) {
+                candidate = i;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Spill the registers that could not be colored, sharing stack slots
+     * among those that do not interfere (the slots being colored much as the
+     * registers are). Registers spilled in different rounds do not share
+     * slots, as those spilled earlier are no longer in the graph.
+     * 
+     * @param spilled
+     *            the registers to spill.
+     */
+
+    private void assignSpillSlots(ArrayList<Integer> spilled) {
+        int base = cfg.offset;
+        HashMap<Integer, Integer> slotOf = new HashMap<Integer, Integer>();
+        for (int reg : spilled) {
+            BitSet used = new BitSet();
+            for (int n : adjacent.get(reg)) {
+                if (slotOf.containsKey(n)) {
+                    used.set(slotOf.get(n));
+                }
+            }
+            int slot = used.nextClearBit(0);
+            slotOf.put(reg, slot);
+            cfg.offset = Math.max(cfg.offset, base + slot + 1);
+        }
+        for (int reg : spilled) {
+            spill(reg, base + slotOf.get(reg), OffsetFrom.SP);
+        }
+    }
+
+    /**
+     * Spill a register (and those coalesced into it) to a stack slot: load it
+     * into a new register before each instruction reading it, and store it
+     * from a new register after each instruction writing it.
+     *
+     * @param reg
+     *            the register number.
+     * @param offset
+     *            the stack slot.
+     * @param offsetFrom
+     *            whether the offset is relative to sp or fp.
+     */
+
+    private void spill(int reg, int offset, OffsetFrom offsetFrom) {
+        for (NBasicBlock block : cfg.basicBlocks) {
+            ArrayList<NLIRInstruction> newLir =
+                    new ArrayList<NLIRInstruction>();
+            for (NLIRInstruction lir : block.lir) {
+                NVirtualRegister temp = null;
+                for (int i = 0; i < lir.reads.size(); i++) {
+                    if (isSpilled(lir.reads.get(i), reg)) {
+                        if (temp == null) {
+                            temp = newRegister(lir.reads.get(i));
+                            NLIRLoad load = new NLIRLoad(block, lir.id,
+                                    offset, offsetFrom, temp);
+                            load.write = temp;
+                            newLir.add(load);
+                        }
+                        lir.reads.set(i, temp);
+                    }
+                }
+                newLir.add(lir);
+                if (lir.write != null && isSpilled(lir.write, reg)) {
+                    if (temp == null) {
+                        temp = newRegister(lir.write);
+                    }
+                    lir.write = temp;
+                    newLir.add(new NLIRStore(block, lir.id, offset,
+                            offsetFrom, temp));
+                }
+            }
+            block.lir = newLir;
+        }
+    }
+
+    /**
+     * Is a register one being spilled?
+     *
+     * @param reg
+     *            the register.
+     * @param spilled
+     *            the number of the register being spilled.
+     * @return true or false.
+     */
+
+    private boolean isSpilled(NRegister reg, int spilled) {
+        return reg.number() >= 32 && alias != null
+                && reg.number() < alias.size() ? find(reg.number()) == spilled
+                : reg.number() == spilled;
+    }
+
+    /**
+     * Return a new (unspillable) virtual register, for the value of another
+     * around a spill load or store.
+     *
+     * @param reg
+     *            the register spilled.
+     * @return the new register.
+     */
+
+    private NVirtualRegister newRegister(NRegister reg) {
+        NVirtualRegister vReg = (NVirtualRegister) reg;
+        NVirtualRegister temp = new NVirtualRegister(cfg.registers.size(),
+                vReg.sType(), vReg.lType());
+        cfg.registers.add(temp);
+        unspillable.set(temp.number());
+        return temp;
     }
 
 }
@@ -113,6 +113,17 @@ abstract class NHIRInstruction {
         return null;
     }
 
+    /**
+     * Return the HIR ids of the instructions whose values this instruction
+     * uses.
+     * 
+     * @return HIR ids of the operands.
+     */
+
+    public ArrayList<Integer> operands() {
+        return new ArrayList<Integer>();
+    }
+
     /**
      * Return the identifier of this instruction with the short type name
      * prefixed.
@@ -191,6 +202,17 @@ class NHIRArithmetic extends NHIRInstruction {
         return lir;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public ArrayList<Integer> operands() {
+        ArrayList<Integer> operands = new ArrayList<Integer>();
+        operands.add(lhs);
+        operands.add(rhs);
+        return operands;
+    }
+
     /**
      * @inheritDoc
      */
@@ -367,6 +389,17 @@ class NHIRConditionalJump extends NHIRInstruction {
         return lir;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public ArrayList<Integer> operands() {
+        ArrayList<Integer> operands = new ArrayList<Integer>();
+        operands.add(lhs);
+        operands.add(rhs);
+        return operands;
+    }
+
     /**
      * @inheritDoc
      */
@@ -563,6 +596,14 @@ class NHIRInvoke extends NHIRInstruction {
         return lir;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public ArrayList<Integer> operands() {
+        return new ArrayList<Integer>(arguments);
+    }
+
     /**
      * @inheritDoc
      */
@@ -634,6 +675,18 @@ class NHIRReturn extends NHIRInstruction {
         return lir;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public ArrayList<Integer> operands() {
+        ArrayList<Integer> operands = new ArrayList<Integer>();
+        if (value != -1) {
+            operands.add(value);
+        }
+        return operands;
+    }
+
     /**
      * @inheritDoc
      */
@@ -711,6 +764,16 @@ class NHIRPutField extends NHIRInstruction {
         return lir;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public ArrayList<Integer> operands() {
+        ArrayList<Integer> operands = new ArrayList<Integer>();
+        operands.add(value);
+        return operands;
+    }
+
     /**
      * @inheritDoc
      */
@@ -907,6 +970,17 @@ class NHIRALoad extends NHIRInstruction {
         return lir;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public ArrayList<Integer> operands() {
+        ArrayList<Integer> operands = new ArrayList<Integer>();
+        operands.add(arrayRef);
+        operands.add(index);
+        return operands;
+    }
+
     /**
      * @inheritDoc
      */
@@ -984,6 +1058,18 @@ class NHIRAStore extends NHIRInstruction {
         return lir;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public ArrayList<Integer> operands() {
+        ArrayList<Integer> operands = new ArrayList<Integer>();
+        operands.add(arrayRef);
+        operands.add(index);
+        operands.add(value);
+        return operands;
+    }
+
     /**
      * @inheritDoc
      */
@@ -1057,6 +1143,14 @@ class NHIRPhiFunction extends NHIRInstruction {
         return lir;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public ArrayList<Integer> operands() {
+        return new ArrayList<Integer>(arguments);
+    }
+
     /**
      * @inheritDoc
      */
@@ -24,8 +24,18 @@ class NInterval implements Comparable<NInterval> {
      */
     public int vRegId;
 
-    /** All live ranges for this virtual register */
-    public ArrayList<NRange> ranges;
+    /**
+     * All live ranges for this virtual register, sorted by position, in
+     * ranges[first] to ranges[last - 1]. The ranges are built back to front,
+     * so there is room left at the front of the array.
+     */
+    private NRange[] ranges;
+
+    /** Index of the first range. */
+    private int first;
+
+    /** Index after the last range. */
+    private int last;
 
     /**
      * All use positions (in LIR) and their types for this virtual register
@@ -38,6 +48,12 @@ class NInterval implements Comparable<NInterval> {
      */
     public NPhysicalRegister pRegister;
 
+    /**
+     * An interval related to this one by a move, whose physical register it
+     * would be best for this one to be assigned too.
+     */
+    public NInterval hint;
+
     /** Whether or not to spill. */
     public boolean spill;
 
@@ -50,9 +66,15 @@ class NInterval implements Comparable<NInterval> {
     /** Parent of this interval. */
     public NInterval parent;
 
-    /** Children of this interval. */
+    /** Children of this interval, sorted by position. */
     public ArrayList<NInterval> children;
 
+    /**
+     * Position at which this interval is next to change state (from active to
+     * inactive, or the other way round) in linear scan.
+     */
+    public int nextChange;
+
     /**
      * Construct a NInterval with the given virtual register ID for the given
      * control flow graph.
@@ -65,7 +87,8 @@ class NInterval implements Comparable<NInterval> {
 
     public NInterval(int virtualRegID, NControlFlowGraph cfg) {
         this.cfg = cfg;
-        this.ranges = new ArrayList<NRange>();
+        this.ranges = new NRange[4];
+        this.first = this.last = ranges.length;
         this.usePositions = new TreeMap<Integer, InstructionType>();
         this.vRegId = virtualRegID;
         this.children = new ArrayList<NInterval>();
@@ -91,7 +114,9 @@ class NInterval implements Comparable<NInterval> {
     public NInterval(int virtualRegID, NControlFlowGraph cfg,
             ArrayList<NRange> childRanges, NInterval parent) {
         this.cfg = cfg;
-        this.ranges = childRanges;
+        this.ranges = childRanges.toArray(new NRange[childRanges.size()]);
+        this.first = 0;
+        this.last = ranges.length;
         this.usePositions = new TreeMap<Integer, InstructionType>();
         this.vRegId = virtualRegID;
         this.parent = parent;
@@ -108,16 +133,55 @@ class NInterval implements Comparable<NInterval> {
      */
 
     public void addOrExtendNRange(NRange newNRange) {
-        if (!ranges.isEmpty()) {
-            if (newNRange.stop + 5 == ranges.get(0).start
-                    || newNRange.rangeOverlaps(ranges.get(0))) {
-                ranges.get(0).start = newNRange.start;
+        if (first < last
+                && (newNRange.stop + 5 == ranges[first].start || newNRange
+                        .rangeOverlaps(ranges[first]))) {
+            ranges[first].start = newNRange.start;
+        } else {
+            addFirstRange(newNRange);
+        }
+    }
+
+    /**
+     * Add a range in front of the existing ranges, making room at the front
+     * of the array (doubling it) if there is none.
+     * 
+     * @param range
+     *            the range to add.
+     */
+
+    private void addFirstRange(NRange range) {
+        if (first == 0) {
+            int room = Math.max(last, 4);
+            NRange[] newRanges = new NRange[room + last];
+            System.arraycopy(ranges, 0, newRanges, room, last);
+            ranges = newRanges;
+            first = room;
+            last += room;
+        }
+        ranges[--first] = range;
+    }
+
+    /**
+     * Return the index of the last range starting at or before a given
+     * position (by binary search), or first - 1 if there is none.
+     * 
+     * @param pos
+     *            the position.
+     * @return the index of the range.
+     */
+
+    private int rangeIndexAt(int pos) {
+        int lo = first, hi = last - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ranges[mid].start <= pos) {
+                lo = mid + 1;
             } else {
-                ranges.add(0, newNRange);
+                hi = mid - 1;
             }
-        } else {
-            ranges.add(newNRange);
         }
+        return hi;
     }
 
     /**
@@ -132,36 +196,32 @@ class NInterval implements Comparable<NInterval> {
      */
 
     public int nextIntersection(NInterval otherInterval) {
-        int a = -1, b = -2;
-        for (NRange r : this.ranges) {
-            if (otherInterval.isLiveAt(r.start)) {
-                a = r.start;
-                break;
-            }
-        }
-        for (NRange r : otherInterval.ranges) {
-            if (this.isLiveAt(r.start)) {
-                b = r.start;
-                break;
+        // Walk both (sorted) lists of ranges together, to the first pair
+        // that overlap.
+        int i = this.first, j = otherInterval.first;
+        while (i < this.last && j < otherInterval.last) {
+            NRange a = this.ranges[i], b = otherInterval.ranges[j];
+            if (a.stop < b.start) {
+                i++;
+            } else if (b.stop < a.start) {
+                j++;
+            } else {
+                return Math.max(a.start, b.start);
             }
         }
-        if (a >= 0 && b >= 0) {
-            return a <= b ? a : b;
-        } else {
-            return a > b ? a : b;
-        }
+        return -1;
     }
 
     /**
      * The next use position of this interval after the first range start of the
-     * foreign interval. If there is no such use, then the first use position is
-     * returned to preserve data flow (in case of loops).
+     * foreign interval. If there is no such use, the interval may be split
+     * there, the rest of it staying in its spill slot.
      * 
      * @param currInterval
      *            the interval with starting point after which we want to find
      *            the next usage of this one.
      * 
-     * @return the next use position.
+     * @return the next use position, or Integer.MAX_VALUE if there is none.
      * 
      */
 
@@ -170,8 +230,6 @@ class NInterval implements Comparable<NInterval> {
 
         if (usePositions.ceilingKey(psi) != null) {
             return usePositions.ceilingKey(psi);
-        } else if (!usePositions.isEmpty()) {
-            return usePositions.firstKey();
         } else {
             return Integer.MAX_VALUE;
         }
@@ -188,16 +246,18 @@ class NInterval implements Comparable<NInterval> {
     }
 
     /**
-     * Sets the start value of the very first range. Note: There will always be
-     * at least one range before this method is used by buildIntervals.
+     * Sets the start value of the very first range. If the value written at
+     * newStart is never read, no range reaches it; it then gets a range of
+     * its own, so that the register written to is not one that is live there.
      * 
      * @param newStart
      *            the value to which the first range's start will be set.
      */
     public void newFirstRangeStart(int newStart) {
-        // Check
-        if (!ranges.isEmpty()) {
-            ranges.get(0).start = newStart;
+        if (first == last || ranges[first].start > newStart) {
+            addFirstRange(new NRange(newStart, newStart));
+        } else {
+            ranges[first].start = newStart;
         }
     }
 
@@ -222,12 +282,7 @@ class NInterval implements Comparable<NInterval> {
      */
 
     public boolean isLiveAt(int atIndex) {
-        for (NRange r : ranges) {
-            if (atIndex >= r.start && atIndex <= r.stop) {
-                return true;
-            }
-        }
-        return false;
+        return liveRangeAt(atIndex) != null;
     }
 
     /**
@@ -241,12 +296,30 @@ class NInterval implements Comparable<NInterval> {
      */
 
     private NRange liveRangeAt(int id) {
-        for (NRange r : ranges) {
-            if (id >= r.start && id <= r.stop) {
-                return r;
-            }
+        int i = rangeIndexAt(id);
+        return i >= first && id <= ranges[i].stop ? ranges[i] : null;
+    }
+
+    /**
+     * The position at which this interval, live or not at a given position,
+     * next changes state: the stop of the range in which it is live there, or
+     * else the start of the next range. Past the last range, this is the stop
+     * of that range (or -1 if there are no ranges).
+     * 
+     * @param pos
+     *            the position.
+     * @return the position of the next change.
+     */
+
+    public int nextChangeAfter(int pos) {
+        int i = rangeIndexAt(pos);
+        if (i >= first && pos <= ranges[i].stop) {
+            return ranges[i].stop;
+        } else if (i + 1 < last) {
+            return ranges[i + 1].start;
+        } else {
+            return lastNRangeStop();
         }
-        return null;
     }
 
     /**
@@ -259,8 +332,8 @@ class NInterval implements Comparable<NInterval> {
     public void writeToStdOut(PrettyPrinter p) {
         if (cfg.registers.get(vRegId) != null) {
             String s = cfg.registers.get(vRegId).name() + ": ";
-            for (NRange r : ranges) {
-                s += r.toString() + " ";
+            for (int i = first; i < last; i++) {
+                s += ranges[i].toString() + " ";
             }
             if (pRegister != null) {
                 s += "-> " + pRegister.name();
@@ -280,8 +353,8 @@ class NInterval implements Comparable<NInterval> {
             }
         } else if (this.isChild()) {
             String s = "\tv" + this.vRegId + ": ";
-            for (NRange r : ranges) {
-                s += r.toString() + " ";
+            for (int i = first; i < last; i++) {
+                s += ranges[i].toString() + " ";
             }
             if (pRegister != null) {
                 s += "-> " + pRegister.name();
@@ -307,10 +380,10 @@ class NInterval implements Comparable<NInterval> {
      */
 
     public int firstRangeStart() {
-        if (ranges.isEmpty())
+        if (first == last)
             return -1;
         else
-            return ranges.get(0).start;
+            return ranges[first].start;
     }
 
     /**
@@ -320,10 +393,10 @@ class NInterval implements Comparable<NInterval> {
      */
 
     public int lastNRangeStop() {
-        if (ranges.isEmpty())
+        if (first == last)
             return -1;
         else
-            return ranges.get(ranges.size() - 1).stop;
+            return ranges[last - 1].stop;
     }
 
     /**
@@ -373,33 +446,37 @@ class NInterval implements Comparable<NInterval> {
             // within this same range.
             NRange liveRange = this.liveRangeAt(idx);
             int splitTo = idx;
-            splitTo = usePositions.ceilingKey(idx);
+            if (usePositions.ceilingKey(idx) != null) {
+                splitTo = usePositions.ceilingKey(idx);
+            }
             childsRanges.add((liveRange.splitRange(splitTo, idx - 5)));
         }
 
-        // The following two for loops take care of any untouched ranges
-        // which start after the split position and must be moved to the
-        // child interval.
-        for (NRange r : ranges) {
-            if (r.start > idx) {
-                childsRanges.add(r);
-            }
-        }
-        for (NRange r : childsRanges) {
-            ranges.remove(r);
+        // Any untouched ranges which start after the split position must
+        // be moved to the child interval.
+        int split = rangeIndexAt(idx) + 1;
+        for (int i = split; i < last; i++) {
+            childsRanges.add(ranges[i]);
+            ranges[i] = null;
         }
+        last = split;
 
         NInterval child = new NInterval(cfg.maxIntervals++, cfg, childsRanges,
                 this.getParent());
         cfg.registers.add(null); // expand size of cfg.registers to
         // avoid null pointer exception when printing.
 
+        // A family spills to a single slot, the child too if the family
+        // has been given one already.
+        child.offset = this.getParent().offset;
+        child.offsetFrom = this.getParent().offsetFrom;
+
         // transfer remaining use positions
         while (this.usePositions.ceilingKey(idx) != null)
             child.usePositions
                     .put(this.usePositions.ceilingKey(idx), this.usePositions
                             .remove(this.usePositions.ceilingKey(idx)));
-        this.getParent().children.add(child);
+        this.getParent().addChild(child);
         return child;
     }
 
@@ -425,69 +502,47 @@ class NInterval implements Comparable<NInterval> {
      */
 
     public NInterval childAt(int idx) {
-        for (NInterval child : children) {
-            if (child.isLiveAt(idx)) {
-                return child;
-            }
+        int c = childIndexAt(idx);
+        if (c >= 0 && children.get(c).isLiveAt(idx)) {
+            return children.get(c);
         }
         return this;
     }
 
     /**
-     * A child of this interval which is live or ends before the given basic
-     * block's end.
+     * Add a child interval, keeping the children sorted by position. Since
+     * each split moves all of an interval after the split position to the
+     * child, the children do not overlap one another, and so are sorted by
+     * their stop positions as well.
      * 
-     * @param b
-     *            the basic block.
-     * @return the child of this interval which ends at or nearest (before) this
-     *         basic block's end (last lir instruction index).
+     * @param child
+     *            the child interval.
      */
 
-    public NInterval childAtOrEndingBefore(NBasicBlock b) {
-        int idx = b.getLastLIRInstId();
-        for (NInterval child : children) {
-            if (child.isLiveAt(idx))
-                return child;
-        }
-        NInterval tmp = this;
-        int highestEndingAllowed = b.getFirstLIRInstId();
-        for (NInterval child : children) {
-            // get the child which ends before idx but also ends closest to idx
-            if (child.lastNRangeStop() < idx
-                    && child.lastNRangeStop() > highestEndingAllowed) {
-                tmp = child;
-                highestEndingAllowed = tmp.lastNRangeStop();
-            }
-        }
-        return tmp;
+    private void addChild(NInterval child) {
+        children.add(childIndexAt(child.firstRangeStart()) + 1, child);
     }
 
     /**
-     * The child of this interval which is live or starts after the given basic
-     * block's start
+     * Return the index of the last child starting at or before a given
+     * position (by binary search), or -1 if there is none.
      * 
-     * @param b
-     *            the basic block
-     * @return the child of this interval which starts at or nearest (after)
-     *         this basic block's start (fist lir instruction index).
+     * @param pos
+     *            the position.
+     * @return the index of the child.
      */
 
-    public NInterval childAtOrStartingAfter(NBasicBlock b) {
-        int idx = b.getFirstLIRInstId();
-        for (NInterval child : children) {
-            if (child.isLiveAt(idx))
-                return child;
-        }
-        NInterval tmp = this;
-        int lowestStartAllowed = b.getLastLIRInstId();// block's end
-        for (NInterval child : children) {
-            if (child.firstRangeStart() > idx
-                    && child.firstRangeStart() < lowestStartAllowed) {
-                tmp = child;
-                lowestStartAllowed = tmp.firstRangeStart();
+    private int childIndexAt(int pos) {
+        int lo = 0, hi = children.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (children.get(mid).firstRangeStart() <= pos) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
             }
         }
-        return tmp;
+        return hi;
     }
 
     /**
@@ -522,21 +577,21 @@ class NInterval implements Comparable<NInterval> {
     }
 
     /**
-     * Assigns an offset to this interval (if one hasn't been already assigned).
-     * Assigns that same offset to any (newly created) children.
+     * Spills this interval to the slot of its family (the parent interval and
+     * its children), assigning the family a slot if it hasn't been assigned
+     * one already. The parent and all the children have that same slot.
      */
 
     public void spill() {
+        NInterval parent = this.getParent();
         this.spill = true;
-        if (this.offset == -1) {
-            this.offset = cfg.offset++;
-            this.offsetFrom = OffsetFrom.SP;
+        if (parent.offset == -1) {
+            parent.offset = cfg.offset++;
+            parent.offsetFrom = OffsetFrom.SP;
         }
-        for (NInterval child : children) {
-            if (child.offset == -1) {
-                child.offset = this.offset;
-                child.offsetFrom = this.offsetFrom;
-            }
+        for (NInterval child : parent.children) {
+            child.offset = parent.offset;
+            child.offsetFrom = parent.offsetFrom;
         }
     }
 
@@ -27,6 +27,7 @@ abstract class NLIRInstruction {
         lirMnemonic[AALOAD] = "AALOAD";
         lirMnemonic[IALOAD] = "IALOAD";
         lirMnemonic[IASTORE] = "IASTORE";
+        lirMnemonic[IF_ICMPEQ] = "EQ";
         lirMnemonic[IF_ICMPNE] = "NE";
         lirMnemonic[IF_ICMPGT] = "GT";
         lirMnemonic[IF_ICMPLE] = "LE";
@@ -328,6 +329,12 @@ class NLIRConditionalJump extends NLIRInstruction {
     /** Block to jump to on false. */
     public NBasicBlock onFalseDestination;
 
+    /**
+     * Whether the block to jump to on false is the next one, so that control
+     * falls through to it.
+     */
+    public boolean fallsThrough;
+
     /**
      * Construct an NLIRConditionalJump instruction.
      * 
@@ -371,12 +378,40 @@ class NLIRConditionalJump extends NLIRInstruction {
         reads.set(1, input2.pRegister);
     }
 
+    /**
+     * Negate the test, exchanging the blocks to jump to on true and on false.
+     */
+
+    public void negate() {
+        switch (opcode) {
+        case IF_ICMPEQ:
+            opcode = IF_ICMPNE;
+            break;
+        case IF_ICMPNE:
+            opcode = IF_ICMPEQ;
+            break;
+        case IF_ICMPGT:
+            opcode = IF_ICMPLE;
+            break;
+        case IF_ICMPLE:
+            opcode = IF_ICMPGT;
+            break;
+        }
+        NBasicBlock destination = onTrueDestination;
+        onTrueDestination = onFalseDestination;
+        onFalseDestination = destination;
+    }
+
     /**
      * @inheritDoc
      */
 
     public void toSpim(PrintWriter out) {
         switch (opcode) {
+        case IF_ICMPEQ:
+            out.printf("    beq %s,%s,%s\n", reads.get(0), reads.get(1),
+                    block.cfg.labelPrefix + "." + onTrueDestination.id);
+            break;
         case IF_ICMPNE:
             out.printf("    bne %s,%s,%s\n", reads.get(0), reads.get(1),
                     block.cfg.labelPrefix + "." + onTrueDestination.id);
@@ -390,8 +425,10 @@ class NLIRConditionalJump extends NLIRInstruction {
                     block.cfg.labelPrefix + "." + onTrueDestination.id);
             break;
         }
-        out.printf("    j %s\n", block.cfg.labelPrefix + "."
-                + onFalseDestination.id);
+        if (!fallsThrough) {
+            out.printf("    j %s\n", block.cfg.labelPrefix + "."
+                    + onFalseDestination.id);
+        }
     }
 
     /**
@@ -412,7 +449,7 @@ class NLIRConditionalJump extends NLIRInstruction {
 class NLIRGoto extends NLIRInstruction {
 
     /** The destination block to unconditionally jump to. */
-    private NBasicBlock destination;
+    public NBasicBlock destination;
 
     /**
      * Construct an NLIRGoto instruction.
@@ -1092,6 +1129,18 @@ class NLIRLoad extends NLIRInstruction {
         this.register = register;
     }
 
+    /**
+     * @inheritDoc
+     */
+
+    public void allocatePhysicalRegisters() {
+        if (register instanceof NVirtualRegister) {
+            register = block.cfg.intervals.get(register.number()).childAt(id)
+                    .pRegister;
+            write = register;
+        }
+    }
+
     /**
      * @inheritDoc
      */
@@ -3,6 +3,11 @@
 package jminusminus;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
 
 /**
  * Implements the Linear Scan register allocation algorithm.
@@ -10,11 +15,14 @@ import java.util.ArrayList;
 
 public class NLinearRegisterAllocator extends NRegisterAllocator {
     /**
-     * Interval queues for tracking the allocation process.
+     * Interval queues for tracking the allocation process. Unhandled intervals
+     * are ordered by their start positions, and active and inactive ones by
+     * the positions at which they next change state, so that only those that
+     * do need be looked at as each interval is handled.
      */
-    private ArrayList<NInterval> unhandled;
-    private ArrayList<NInterval> active;
-    private ArrayList<NInterval> inactive;
+    private PriorityQueue<NInterval> unhandled;
+    private PriorityQueue<NInterval> active;
+    private PriorityQueue<NInterval> inactive;
 
     /**
      * Used to keep track of which intervals get assigned to what physical
@@ -32,9 +40,12 @@ public class NLinearRegisterAllocator extends NRegisterAllocator {
 
     public NLinearRegisterAllocator(NControlFlowGraph cfg) {
         super(cfg);
-        unhandled = new ArrayList<NInterval>();
-        active = new ArrayList<NInterval>();
-        inactive = new ArrayList<NInterval>();
+        unhandled = new PriorityQueue<NInterval>(11,
+                new NIntervalStartComparator());
+        active = new PriorityQueue<NInterval>(11,
+                new NIntervalChangeComparator());
+        inactive = new PriorityQueue<NInterval>(11,
+                new NIntervalChangeComparator());
 
         // Instantiate usePositions and freePos to be the size of
         // the physical registers used.
@@ -53,12 +64,40 @@ public class NLinearRegisterAllocator extends NRegisterAllocator {
      */
 
     public void allocation() {
+        // Stack slots below this one hold arguments fourth and above,
+        // for the methods invoked.
+        int spillBase = cfg.offset;
+
+        // Coalesce the registers related by moves that do not interfere.
+        this.coalesceMoves();
+
         // Build the intervals for the control flow graph.
         this.buildIntervals(); // The correct intervals are now in intervals
 
-        // Add all intervals corresponding to vregs to unhandled list
+        // Add all intervals corresponding to vregs (but for those
+        // coalesced into others) to unhandled list
         for (int i = 32; i < cfg.intervals.size(); i++) {
-            this.addSortedToUnhandled(cfg.intervals.get(i));
+            if (cfg.registers.get(i) != null) {
+                this.addSortedToUnhandled(cfg.intervals.get(i));
+            }
+        }
+
+        // The registers related by the moves that are left are best
+        // assigned the same physical register.
+        for (NBasicBlock block : cfg.basicBlocks) {
+            for (NLIRInstruction lir : block.lir) {
+                if (lir instanceof NLIRMove) {
+                    NInterval from = cfg.intervals.get(lir.reads.get(0)
+                            .number());
+                    NInterval to = cfg.intervals.get(lir.write.number());
+                    if (from.hint == null) {
+                        from.hint = to;
+                    }
+                    if (to.hint == null) {
+                        to.hint = from;
+                    }
+                }
+            }
         }
 
         // Allocate any fixed registers (a0, ..., a3 and v0) that were
@@ -92,65 +131,66 @@ public class NLinearRegisterAllocator extends NRegisterAllocator {
 
         NInterval currInterval; // the current interval
         int psi; // the current interval's first start position
-        ArrayList<NInterval> tmp;
 
         // Linear allocation begins; repeat so long as there are
         // additional virtual registers to map to physical registers.
         while (!unhandled.isEmpty()) {
-            currInterval = unhandled.remove(0);
+            currInterval = unhandled.poll();
             psi = currInterval.firstRangeStart();
-            tmp = new ArrayList<NInterval>();
-            for (int i = 0; i < active.size(); i++) {
-                if (active.get(i).lastNRangeStop() < psi) {
-                    tmp.add(active.get(i));
-                } else if (!active.get(i).isLiveAt(psi)) {
-                    inactive.add(active.get(i));
-                    tmp.add(active.get(i));
-                }
+            while (!active.isEmpty() && active.peek().nextChange < psi) {
+                this.schedule(active.poll(), psi);
             }
-            for (NInterval nonActive : tmp) {
-                active.remove(nonActive);
-            }
-            tmp = new ArrayList<NInterval>();
-            for (int i = 0; i < inactive.size(); i++) {
-                if (inactive.get(i).lastNRangeStop() < psi) {
-                    tmp.add(inactive.get(i));
-                } else if (inactive.get(i).isLiveAt(psi)) {
-                    active.add(inactive.get(i));
-                    tmp.add(inactive.get(i));
-                }
-            }
-            for (NInterval nonInActive : tmp) {
-                inactive.remove(nonInActive);
+            while (!inactive.isEmpty() && inactive.peek().nextChange <= psi) {
+                this.schedule(inactive.poll(), psi);
             }
             if (!this.foundFreeRegFor(currInterval)) {// check
                 this.allocateBlockedRegFor(currInterval); // never fails
             }
+            currInterval.nextChange = currInterval.nextChangeAfter(psi);
             active.add(currInterval);
         }
+        this.assignSpillSlots(spillBase);
         this.resolveDataFlow();
     }
 
+    /**
+     * Adds an interval which has been handled to the active set if it is live
+     * at the given position, or to the inactive set if it is live after it,
+     * noting the position at which it next changes state.
+     * 
+     * @param interval
+     *            the interval.
+     * @param psi
+     *            the current position.
+     */
+
+    private void schedule(NInterval interval, int psi) {
+        if (interval.lastNRangeStop() < psi) {
+            return; // handled
+        }
+        interval.nextChange = interval.nextChangeAfter(psi);
+        if (interval.isLiveAt(psi)) {
+            active.add(interval);
+        } else {
+            inactive.add(interval);
+        }
+    }
+
     /**
      * Adds a given interval onto the unhandled list, maintaining an order based
-     * on the first range start of the NIntervals.
+     * on the first range start of the NIntervals. The part of an interval split
+     * off past its last use is not added; it stays in its spill slot.
      * 
      * @param newInterval
      *            the NInterval to sort onto unhandled.
      */
 
     private void addSortedToUnhandled(NInterval newInterval) {
-        if (unhandled.isEmpty()) {
-            unhandled.add(newInterval);
-        } else {
-            int i = 0;
-            while (i < unhandled.size()
-                    && unhandled.get(i).firstRangeStart() <= newInterval
-                            .firstRangeStart()) {
-                i++;
-            }
-            unhandled.add(i, newInterval);
+        if (newInterval.usePositions.isEmpty()) {
+            // Not used again, and so left in its spill slot.
+            return;
         }
+        unhandled.add(newInterval);
     }
 
     /**
@@ -182,13 +222,18 @@ public class NLinearRegisterAllocator extends NRegisterAllocator {
         // The physical registers available are in NPhysicalRegister.getInfo
         // static array. This is indexed from 0 to NPhysicalRegister.MAX_COUNT
         int reg = this.getBestFreeReg();
+        int hint = this.getHintedReg(currInterval);
+        if (hint >= 0 && freePos[hint] > currInterval.lastNRangeStop()) {
+            reg = hint;
+        }
         if (freePos[reg] == 0)
             return false;
         else if (freePos[reg] > currInterval.lastNRangeStop()) {
             currInterval.pRegister = NPhysicalRegister.regInfo[reg
                     + NPhysicalRegister.T0];
-            cfg.pRegisters.add(NPhysicalRegister.regInfo[reg
-                    + NPhysicalRegister.T0]);
+            if (!cfg.pRegisters.contains(currInterval.pRegister)) {
+                cfg.pRegisters.add(currInterval.pRegister);
+            }
             regIntervals.get(reg).add(currInterval);
             return true;
         } else {
@@ -227,6 +272,24 @@ public class NLinearRegisterAllocator extends NRegisterAllocator {
         return freeRegNumber;
     }
 
+    /**
+     * The physical register assigned to the interval hinted for the given
+     * one, if that is one of those available for allocation.
+     * 
+     * @param currInterval
+     *            the current interval.
+     * @return the register number, or -1.
+     */
+
+    private int getHintedReg(NInterval currInterval) {
+        NInterval hint = currInterval.hint;
+        if (hint == null || hint.pRegister == null) {
+            return -1;
+        }
+        int reg = hint.pRegister.number - NPhysicalRegister.T0;
+        return reg >= 0 && reg < NPhysicalRegister.MAX_COUNT ? reg : -1;
+    }
+
     /**
      * Allocates a register based on spilling an interval.
      * 
@@ -270,6 +333,10 @@ public class NLinearRegisterAllocator extends NRegisterAllocator {
                             .firstRangeStart());
                     this.addSortedToUnhandled(splitChild);
                     i.spill();
+                    // Now i ends before the current interval starts.
+                    if (active.remove(i) || inactive.remove(i)) {
+                        this.schedule(i, currInterval.firstRangeStart());
+                    }
                 }
             }
             regIntervals.get(reg).add(currInterval);
@@ -304,125 +371,314 @@ public class NLinearRegisterAllocator extends NRegisterAllocator {
     }
 
     /**
-     * Resolve the data flow after allocating registers, inserting additional
-     * saves and restores for registers to maintain consistency.
+     * Reassign the stack slots the intervals have been spilled to, so that
+     * intervals whose lifetimes do not overlap share a slot. An interval and
+     * its children (which spill to the same slot) take up the slot from the
+     * first start of any of them to the last stop, and the slot of the loads
+     * and stores just around those. The slots are taken in order of their
+     * first use, each going into the first new slot that is free by then.
+     * Every interval that has been split has a slot, shared by its children.
+     * 
+     * @param base
+     *            the first stack slot for spills.
      */
 
-    private void resolveDataFlow() {
-        // local data flow construction
-        // Devised an alternate way of doing this, perhaps with more
-        // clarity, will implement later, but has same effect.
-        for (NInterval i : cfg.intervals) {
-            if (cfg.registers.get(i.vRegId) != null) {
-                if (i.spill) {
-                    for (int c = 0; c < i.children.size(); c++) {
-                        if (i.endsAtBlock() == i.children.get(c)
-                                .startsAtBlock()) {
-                            if (c == 0) {
-                                addStoreInstruction(i, i.lastNRangeStop());
-                                addLoadInstruction(i.children.get(c),
-                                        i.children.get(c).firstRangeStart());
-                            } else {
-                                addStoreInstruction(i.children.get(c - 1),
-                                        i.children.get(c - 1).lastNRangeStop());
-                                addLoadInstruction(i.children.get(c),
-                                        i.children.get(c).firstRangeStart());
-                            }
-                        }
+    private void assignSpillSlots(int base) {
+        // The extent of the lifetimes of the intervals in each slot.
+        HashMap<Integer, NRange> extents = new HashMap<Integer, NRange>();
+        for (NInterval interval : cfg.intervals) {
+            ArrayList<NInterval> family = new ArrayList<NInterval>();
+            family.add(interval);
+            family.addAll(interval.children);
+            int start = Integer.MAX_VALUE, stop = -1;
+            for (NInterval i : family) {
+                if (i.firstRangeStart() >= 0) {
+                    start = Math.min(start, i.firstRangeStart());
+                    stop = Math.max(stop, i.lastNRangeStop());
+                }
+            }
+            for (NInterval i : family) {
+                if (i.offsetFrom == OffsetFrom.SP && i.offset >= base) {
+                    NRange extent = extents.get(i.offset);
+                    if (extent == null) {
+                        extents.put(i.offset, new NRange(start, stop));
+                    } else {
+                        extent.start = Math.min(extent.start, start);
+                        extent.stop = Math.max(extent.stop, stop);
                     }
                 }
             }
         }
+        if (extents.isEmpty()) {
+            return;
+        }
 
-        // resolution of global data flow
-        for (NBasicBlock b : cfg.basicBlocks) {
-            for (NBasicBlock s : b.successors) {
-                for (int i = s.liveIn.nextSetBit(0); i >= 0; i = s.liveIn
-                        .nextSetBit(i + 1)) {
-                    NInterval parent = cfg.intervals.get(i);
-                    NInterval from = parent.childAtOrEndingBefore(b);
-                    NInterval to = parent.childAtOrStartingAfter(s);
-                    if (!from.equals(to)) {
-                        addStoreInstruction(from, from.usePositions.floorKey(b
-                                .getLastLIRInstId()));
-                        to = getSegmentWithNearestUse(to, s.getFirstLIRInstId());
-                        if (to.usePositions.ceilingEntry(s.getFirstLIRInstId())
-                                .getValue() == InstructionType.read)
-                            // no use loading prior to a write.
-                            addLoadInstruction(to, to.usePositions.ceilingKey(s
-                                    .getFirstLIRInstId()));
-                    }
+        // Allocate the new slots, in a linear scan of the old ones.
+        ArrayList<Integer> slots = new ArrayList<Integer>(extents.keySet());
+        Collections.sort(slots);
+        ArrayList<NRange> byStart = new ArrayList<NRange>();
+        HashMap<NRange, Integer> slotOf = new HashMap<NRange, Integer>();
+        for (int slot : slots) {
+            byStart.add(extents.get(slot));
+            slotOf.put(extents.get(slot), slot);
+        }
+        Collections.sort(byStart);
+        ArrayList<Integer> newSlotStops = new ArrayList<Integer>();
+        HashMap<Integer, Integer> newSlot = new HashMap<Integer, Integer>();
+        for (NRange extent : byStart) {
+            int slot = 0;
+            while (slot < newSlotStops.size()
+                    && newSlotStops.get(slot) + 2 >= extent.start) {
+                slot++;
+            }
+            if (slot == newSlotStops.size()) {
+                newSlotStops.add(extent.stop);
+            } else {
+                newSlotStops.set(slot, extent.stop);
+            }
+            newSlot.put(slotOf.get(extent), base + slot);
+        }
+        for (NInterval interval : cfg.intervals) {
+            ArrayList<NInterval> family = new ArrayList<NInterval>();
+            family.add(interval);
+            family.addAll(interval.children);
+            for (NInterval i : family) {
+                if (i.offsetFrom == OffsetFrom.SP && i.offset >= base) {
+                    i.offset = newSlot.get(i.offset);
                 }
+                assert i.offset == interval.offset
+                        && (i.offset >= 0 || !interval.isParent()) : "v"
+                        + i.vRegId + " has no spill slot";
             }
         }
+        cfg.offset = base + newSlotStops.size();
     }
 
     /**
-     * Get the the interval segment that contains the nearest first use.
-     * 
-     * @param i
-     *            the interval segment (could be a parent or child).
-     * @param id
-     *            the lir id after which a use is sought.
-     * @return the interval segment that that contains the first use at or after
-     *         the id position and is associated with the interval i through a
-     *         sibling or child relationship. Returns i if there is a use after
-     *         id within i. Null if no interval exists that is related to i and
-     *         contains a use position at or after id.
+     * Resolve the data flow after allocating registers, inserting loads and
+     * stores where a value moves between a register and its spill slot, or
+     * between two registers. Within a block, an interval that has been split
+     * is stored after the last use of one part and loaded before the first
+     * use of the next. On an edge, a value that is in a register at the end
+     * of the block the edge comes from, but not in the same register at the
+     * start of the block it goes to, is stored before the branch; storing it
+     * on the other edges too does no harm, the slot being its own. A value
+     * that is in a register only at the start of the block the edge goes to
+     * is loaded on the edge: at the end of the block it comes from, if that
+     * has no other successor, or at the start of the one it goes to, if that
+     * has no other predecessor, or else in a new block splitting the edge.
+     * Formals fourth and above are loaded from the frame where they are
+     * defined.
      */
 
-    private NInterval getSegmentWithNearestUse(NInterval i, int id) {
-        if (i.usePositions.ceilingEntry(id) != null)
-            return i;
-        else {
-            NInterval parent = i;
-            int idx = 0;
-            if (i.isChild()) {
-                parent = i.parent;
-                idx = parent.children.indexOf(i) + 1;
+    private void resolveDataFlow() {
+        // The loads and stores are inserted only once all have been
+        // placed, so that the blocks' instruction ids stay as they were.
+        ArrayList<NLIRInstruction> inserts = new ArrayList<NLIRInstruction>();
+
+        // Local data flow, where an interval is split within a block.
+        for (int v = 32; v < cfg.intervals.size(); v++) {
+            NInterval interval = cfg.intervals.get(v);
+            if (cfg.registers.get(v) == null || interval.offset == -1) {
+                continue;
+            }
+            ArrayList<NInterval> family = new ArrayList<NInterval>();
+            family.add(interval);
+            family.addAll(interval.children);
+            for (int c = 0; c < family.size(); c++) {
+                NInterval i = family.get(c);
+                if (i.pRegister == null || i.firstRangeStart() < 0) {
+                    continue;
+                }
+                int start = i.firstRangeStart();
+                NBasicBlock block = cfg.blockAt(start);
+                if (start != block.getFirstLIRInstId()
+                        && i.usePositions.get(start) != InstructionType.write) {
+                    inserts.add(new NLIRLoad(block, start - 3, i.offset,
+                            i.offsetFrom, i.pRegister));
+                }
+                int stop = i.lastNRangeStop();
+                block = cfg.blockAt(stop);
+                if (c + 1 < family.size()
+                        && stop != block.getLastLIRInstId()) {
+                    inserts.add(new NLIRStore(block, stop + 1, i.offset,
+                            i.offsetFrom, i.pRegister));
+                }
+            }
+        }
+
+        // Formals fourth and above, which are passed on the stack.
+        for (NBasicBlock block : cfg.basicBlocks) {
+            for (NLIRInstruction lir : block.lir) {
+                if (lir instanceof NLIRLoadLocal
+                        && ((NLIRLoadLocal) lir).local >= 4) {
+                    NInterval i = inRegisterAt(cfg.intervals.get(lir.write
+                            .number()), lir.id);
+                    if (i != null) {
+                        inserts.add(new NLIRLoad(block, lir.id + 1, i.offset,
+                                i.offsetFrom, i.pRegister));
+                    }
+                }
+            }
+        }
+
+        // Global data flow, along the edges between blocks.
+        for (NBasicBlock b : new ArrayList<NBasicBlock>(cfg.basicBlocks)) {
+            if (b.lir.isEmpty()) {
+                // Resolved on the edges into it, as part of the block it
+                // falls through to.
+                continue;
             }
-            for (; idx < parent.children.size(); idx++) {
-                if (parent.children.get(idx).usePositions.ceilingEntry(id) != null)
-                    return parent.children.get(idx);
+            NLIRInstruction last = b.lir.get(b.lir.size() - 1);
+            boolean branches = last instanceof NLIRConditionalJump;
+            boolean jumps = branches || last instanceof NLIRGoto;
+            BitSet stored = new BitSet();
+            for (NBasicBlock s : new ArrayList<NBasicBlock>(b.successors)) {
+                NBasicBlock t = s;
+                while (t.lir.isEmpty() && t.successors.size() == 1) {
+                    t = t.successors.get(0);
+                }
+                if (t.lir.isEmpty()) {
+                    continue;
+                }
+                NBasicBlock edge = null;
+                for (int v = s.liveIn.nextSetBit(32); v >= 0; v = s.liveIn
+                        .nextSetBit(v + 1)) {
+                    NInterval interval = cfg.intervals.get(v);
+                    if (cfg.registers.get(v) == null || interval.offset == -1) {
+                        continue;
+                    }
+                    NInterval from = inRegisterAt(interval, last.id);
+                    NInterval to = inRegisterAt(interval, t
+                            .getFirstLIRInstId());
+                    if (from != null && !stored.get(v)
+                            && (to == null || to.pRegister != from.pRegister)) {
+                        stored.set(v);
+                        inserts.add(new NLIRStore(b, jumps ? last.id - 2
+                                : last.id + 2, from.offset, from.offsetFrom,
+                                from.pRegister));
+                    }
+                    if (to == null
+                            || (from != null && from.pRegister == to.pRegister)) {
+                        continue;
+                    }
+                    if (b.successors.size() == 1 && !branches) {
+                        inserts.add(new NLIRLoad(b, jumps ? last.id - 1
+                                : last.id + 3, to.offset, to.offsetFrom,
+                                to.pRegister));
+                    } else if (s.predecessors.size() == 1) {
+                        inserts.add(new NLIRLoad(s,
+                                t.getFirstLIRInstId() - 3, to.offset,
+                                to.offsetFrom, to.pRegister));
+                    } else {
+                        if (edge == null) {
+                            edge = splitEdge(b, s, t.getFirstLIRInstId() - 1);
+                        }
+                        edge.insertLIRInst(new NLIRLoad(edge, t
+                                .getFirstLIRInstId() - 3, to.offset,
+                                to.offsetFrom, to.pRegister));
+                    }
+                }
             }
-            return null;
+        }
+
+        for (NLIRInstruction lir : inserts) {
+            lir.block.insertLIRInst(lir);
         }
     }
 
     /**
-     * Adds a store instruction right after a use position specified by id.
+     * The interval, of a given interval and its children, which holds the
+     * value in a register at a given position.
      * 
-     * @param from
-     *            the interval which this use position is a part of.
+     * @param interval
+     *            the (parent) interval.
      * @param id
-     *            the id of the use position.
+     *            the lir id.
+     * @return the interval holding the value in a register, or null if the
+     *         value is in its spill slot there.
      */
 
-    private void addStoreInstruction(NInterval from, int id) {
-        NBasicBlock b = cfg.blockAt(id);
-        id++;
-        if (b.idIsFree(id)) { // assumes always same instr
-            b.insertLIRInst(new NLIRStore(b, id, from.offset, from.offsetFrom,
-                    from.pRegister));
-        }
+    private NInterval inRegisterAt(NInterval interval, int id) {
+        NInterval i = interval.childAt(id);
+        return i.isLiveAt(id) && i.pRegister != null ? i : null;
     }
 
     /**
-     * Adds a store instruction right before a use position specified by id.
+     * Split an edge, from a block that ends with a conditional jump to a block
+     * with other predecessors, by a new block, for the loads on that edge
+     * alone. The blocks having been laid out, the new block goes right after
+     * the one the edge comes from if the edge is the one falling through, and
+     * otherwise goes last and jumps to the block the edge goes to.
      * 
+     * @param from
+     *            the block the edge comes from.
      * @param to
-     *            the interval which this use position is a part of.
+     *            the block the edge goes to.
      * @param id
-     *            the id of the use position.
+     *            the id for the jump in the new block; the loads go before it.
+     * @return the new block.
      */
 
-    private void addLoadInstruction(NInterval to, int id) {
-        NBasicBlock s = cfg.blockAt(id);
-        id--;
-        if (s.idIsFree(id)) { // assumes always same instr
-            s.insertLIRInst(new NLIRLoad(s, id, to.offset, to.offsetFrom,
-                    to.pRegister));
+    private NBasicBlock splitEdge(NBasicBlock from, NBasicBlock to, int id) {
+        NBasicBlock block = new NBasicBlock(cfg, NControlFlowGraph.blockId++);
+        NLIRConditionalJump jump = (NLIRConditionalJump) from.lir.get(from.lir
+                .size() - 1);
+        if (jump.onFalseDestination == to && jump.fallsThrough) {
+            jump.onFalseDestination = block;
+            cfg.basicBlocks.add(cfg.basicBlocks.indexOf(from) + 1, block);
+        } else {
+            if (jump.onTrueDestination == to) {
+                jump.onTrueDestination = block;
+            } else {
+                jump.onFalseDestination = block;
+            }
+            block.lir.add(new NLIRGoto(block, id, to));
+            cfg.basicBlocks.add(block);
         }
+        from.successors.set(from.successors.indexOf(to), block);
+        to.predecessors.set(to.predecessors.indexOf(from), block);
+        block.predecessors.add(from);
+        block.successors.add(to);
+        block.liveIn = (BitSet) to.liveIn.clone();
+        block.liveOut = (BitSet) to.liveIn.clone();
+        return block;
+    }
+
+}
+
+/**
+ * Orders intervals by their start positions, and those starting at the same
+ * position by the order in which they were created.
+ */
+
+class NIntervalStartComparator implements Comparator<NInterval> {
+
+    /**
+     * @inheritDoc
+     */
+
+    public int compare(NInterval a, NInterval b) {
+        if (a.firstRangeStart() != b.firstRangeStart()) {
+            return a.firstRangeStart() - b.firstRangeStart();
+        }
+        return a.vRegId - b.vRegId;
+    }
+
+}
+
+/**
+ * Orders intervals by the positions at which they next change state.
+ */
+
+class NIntervalChangeComparator implements Comparator<NInterval> {
+
+    /**
+     * @inheritDoc
+     */
+
+    public int compare(NInterval a, NInterval b) {
+        return a.nextChange - b.nextChange;
     }
 
-}
\ No newline at end of file
+}
@@ -39,7 +39,7 @@ public class NNaiveRegisterAllocator extends NRegisterAllocator {
                     .get(cfg.basicBlocks.size() - 1);
             NLIRInstruction lastLir = lastBlock.lir
                     .get(lastBlock.lir.size() - 1);
-            interval.ranges.add(new NRange(0, lastLir.id));
+            interval.addOrExtendNRange(new NRange(0, lastLir.id));
         }
 
         // Allocate any fixed registers (a0, ..., a3 and v0) that were
@@ -82,6 +82,26 @@ class NVirtualRegister extends NRegister {
         this.lType = lType;
     }
 
+    /**
+     * Return the type (short name) of value in register.
+     * 
+     * @return the type (short name).
+     */
+
+    public String sType() {
+        return sType;
+    }
+
+    /**
+     * Return the type (long name) of value in register.
+     * 
+     * @return the type (long name).
+     */
+
+    public String lType() {
+        return lType;
+    }
+
     /**
      * Return a string representation of this virtual register.
      * 
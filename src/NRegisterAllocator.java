@@ -2,8 +2,11 @@
 
 package jminusminus;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 
 /**
  * A register allocator maps virtual registers (from LIR code) to physical
@@ -45,8 +48,7 @@ public abstract class NRegisterAllocator {
      */
 
     protected void buildIntervals() {
-        this.computeLocalLiveSets();
-        this.computeGlobalLiveSets();
+        this.computeLiveness();
         for (int i = cfg.basicBlocks.size() - 1; i >= 0; i--) {
             NBasicBlock currBlock = cfg.basicBlocks.get(i);
             if (currBlock.lir.size() == 0) {
@@ -80,6 +82,165 @@ public abstract class NRegisterAllocator {
         }
     }
 
+    /**
+     * Coalesce the virtual registers related by moves (those resolving phi
+     * functions, mostly) whenever they do not interfere, i.e., neither is
+     * written to where the other is live (other than by a move from it). The
+     * moves in the most deeply nested loops are considered first. Each
+     * register is replaced by the one it is coalesced into, and the moves
+     * left moving a register to itself are removed. Registers holding formal
+     * parameters fourth and above, which live on the frame, are left alone.
+     */
+
+    protected void coalesceMoves() {
+        ArrayList<NLIRInstruction> moves = new ArrayList<NLIRInstruction>();
+        BitSet related = new BitSet(cfg.registers.size());
+        BitSet fixed = new BitSet(cfg.registers.size());
+        int maxDepth = 0;
+        for (NBasicBlock block : cfg.basicBlocks) {
+            maxDepth = Math.max(maxDepth, block.loopDepth);
+        }
+        for (int depth = maxDepth; depth >= 0; depth--) {
+            for (NBasicBlock block : cfg.basicBlocks) {
+                if (block.loopDepth != depth) {
+                    continue;
+                }
+                for (NLIRInstruction lir : block.lir) {
+                    if (lir instanceof NLIRMove
+                            && lir.reads.get(0).number() >= 32
+                            && lir.write.number() >= 32) {
+                        moves.add(lir);
+                        related.set(lir.reads.get(0).number());
+                        related.set(lir.write.number());
+                    } else if (lir instanceof NLIRLoadLocal) {
+                        fixed.set(lir.write.number());
+                    }
+                }
+            }
+        }
+        if (moves.isEmpty()) {
+            return;
+        }
+
+        // Interference among the registers related by moves.
+        this.computeLiveness();
+        HashMap<Integer, HashSet<Integer>> interferes =
+                new HashMap<Integer, HashSet<Integer>>();
+        for (int i = related.nextSetBit(0); i >= 0; i = related
+                .nextSetBit(i + 1)) {
+            interferes.put(i, new HashSet<Integer>());
+        }
+        BitSet live = new BitSet(cfg.registers.size());
+        for (NBasicBlock block : cfg.basicBlocks) {
+            live.clear();
+            live.or(block.liveOut);
+            for (int j = block.lir.size() - 1; j >= 0; j--) {
+                NLIRInstruction lir = block.lir.get(j);
+                if (lir.write != null) {
+                    int def = lir.write.number();
+                    if (related.get(def)) {
+                        int source = lir instanceof NLIRMove ? lir.reads.get(0)
+                                .number() : -1;
+                        for (int i = live.nextSetBit(32); i >= 0; i = live
+                                .nextSetBit(i + 1)) {
+                            if (related.get(i) && i != def && i != source) {
+                                interferes.get(def).add(i);
+                                interferes.get(i).add(def);
+                            }
+                        }
+                    }
+                    live.clear(def);
+                }
+                for (NRegister reg : lir.reads) {
+                    live.set(reg.number());
+                }
+            }
+        }
+
+        // Coalesce, keeping the interference of each register coalesced
+        // into with those it has been coalesced into.
+        int[] alias = new int[cfg.registers.size()];
+        for (int i = 0; i < alias.length; i++) {
+            alias[i] = i;
+        }
+        boolean coalesced = false;
+        for (NLIRInstruction move : moves) {
+            int a = find(alias, move.reads.get(0).number());
+            int b = find(alias, move.write.number());
+            if (a == b || fixed.get(a) || fixed.get(b)
+                    || interferes.get(a).contains(b)) {
+                continue;
+            }
+            alias[b] = a;
+            for (int n : interferes.get(b)) {
+                interferes.get(n).remove(b);
+                interferes.get(n).add(a);
+                interferes.get(a).add(n);
+            }
+            cfg.registers.set(b, null);
+            coalesced = true;
+        }
+        if (!coalesced) {
+            return;
+        }
+
+        // Rename the registers, and remove the moves of a register to
+        // itself.
+        for (NBasicBlock block : cfg.basicBlocks) {
+            ArrayList<NLIRInstruction> newLir =
+                    new ArrayList<NLIRInstruction>();
+            for (NLIRInstruction lir : block.lir) {
+                for (int i = 0; i < lir.reads.size(); i++) {
+                    int reg = lir.reads.get(i).number();
+                    if (reg >= 32 && alias[reg] != reg) {
+                        lir.reads.set(i, cfg.registers.get(find(alias, reg)));
+                    }
+                }
+                if (lir.write != null && lir.write.number() >= 32
+                        && alias[lir.write.number()] != lir.write.number()) {
+                    lir.write = cfg.registers.get(find(alias, lir.write
+                            .number()));
+                }
+                if (!(lir instanceof NLIRMove)
+                        || lir.reads.get(0) != lir.write) {
+                    newLir.add(lir);
+                }
+            }
+            block.lir = newLir;
+        }
+        cfg.renumberLirInstructions();
+    }
+
+    /**
+     * Return the register a register has been coalesced into.
+     * 
+     * @param alias
+     *            the register each register has been coalesced into (itself,
+     *            if none).
+     * @param reg
+     *            the register number.
+     * @return the number of the register it has been coalesced into.
+     */
+
+    private int find(int[] alias, int reg) {
+        while (alias[reg] != reg) {
+            reg = alias[reg];
+        }
+        return reg;
+    }
+
+    /**
+     * Compute the liveness information (the liveUse, liveDef, liveIn and
+     * liveOut sets) for the blocks of the control flow graph from its LIR
+     * code. The sets are left in the blocks, so that they may be used by
+     * other passes over the LIR, and are updated in place if computed again.
+     */
+
+    public void computeLiveness() {
+        this.computeLocalLiveSets();
+        this.computeGlobalLiveSets();
+    }
+
     /**
      * Iterate through a list of basic blocks in order, and sets their liveUse
      * and liveDef BitSet fields to represent the appropriate virtual registers
@@ -89,8 +250,13 @@ public abstract class NRegisterAllocator {
 
     private void computeLocalLiveSets() {
         for (NBasicBlock block : cfg.basicBlocks) {
-            block.liveUse = new BitSet(cfg.registers.size());
-            block.liveDef = new BitSet(cfg.registers.size());
+            if (block.liveUse == null) {
+                block.liveUse = new BitSet(cfg.registers.size());
+                block.liveDef = new BitSet(cfg.registers.size());
+            } else {
+                block.liveUse.clear();
+                block.liveDef.clear();
+            }
             for (NLIRInstruction inst : block.lir) {
                 for (NRegister reg : inst.reads) {
                     if (!(block.liveDef.get(reg.number()))) {
@@ -105,35 +271,53 @@ public abstract class NRegisterAllocator {
     }
 
     /**
-     * Iterate through a list of basic blocks in reverse order, and sets their
-     * lliveIn and liveOut bit sets to reflect global use-def information. It
-     * works internally with the cfg's basicBlock structure.
+     * Compute the liveIn and liveOut sets of the basic blocks, using a
+     * worklist. The blocks are first visited in postorder (the reverse of the
+     * order they are laid out in), so that most blocks are visited after
+     * their successors; after that, a block is visited again only when the
+     * liveIn set of one of its successors grows. Since the sets only grow,
+     * they are updated in place.
      */
 
     private void computeGlobalLiveSets() {
-        boolean changed = false;
-        for (NBasicBlock b : cfg.basicBlocks) {
-            b.liveOut = new BitSet(cfg.registers.size());
+        ArrayDeque<NBasicBlock> worklist = new ArrayDeque<NBasicBlock>();
+        HashSet<NBasicBlock> onWorklist = new HashSet<NBasicBlock>();
+        for (int i = cfg.basicBlocks.size() - 1; i >= 0; i--) {
+            NBasicBlock block = cfg.basicBlocks.get(i);
+            if (block.liveIn == null) {
+                block.liveIn = new BitSet(cfg.registers.size());
+                block.liveOut = new BitSet(cfg.registers.size());
+            } else {
+                block.liveIn.clear();
+                block.liveOut.clear();
+            }
+            block.liveIn.or(block.liveUse);
+            worklist.add(block);
+            onWorklist.add(block);
         }
+        BitSet live = new BitSet(cfg.registers.size());
+        while (!worklist.isEmpty()) {
+            NBasicBlock block = worklist.poll();
+            onWorklist.remove(block);
+            for (NBasicBlock successor : block.successors) {
+                block.liveOut.or(successor.liveIn);
+            }
 
-        // note: we only check for changes in liveOut.
-        do {
-            changed = false;
-            for (int i = cfg.basicBlocks.size() - 1; i >= 0; i--) {
-                NBasicBlock currBlock = cfg.basicBlocks.get(i);
-                BitSet newLiveOut = new BitSet(cfg.registers.size());
-                for (NBasicBlock successor : currBlock.successors) {
-                    newLiveOut.or(successor.liveIn);
-                }
-                if (!currBlock.liveOut.equals(newLiveOut)) {
-                    currBlock.liveOut = newLiveOut;
-                    changed = true;
+            // liveIn = liveUse + (liveOut - liveDef); look only for
+            // registers that are not already in it.
+            live.clear();
+            live.or(block.liveOut);
+            live.andNot(block.liveDef);
+            live.andNot(block.liveIn);
+            if (!live.isEmpty()) {
+                block.liveIn.or(live);
+                for (NBasicBlock predecessor : block.predecessors) {
+                    if (onWorklist.add(predecessor)) {
+                        worklist.add(predecessor);
+                    }
                 }
-                currBlock.liveIn = (BitSet) currBlock.liveOut.clone();
-                currBlock.liveIn.andNot(currBlock.liveDef);
-                currBlock.liveIn.or(currBlock.liveUse);
             }
-        } while (changed);
+        }
     }
 
 }
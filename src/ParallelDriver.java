@@ -0,0 +1,536 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+package jminusminus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import static jminusminus.TokenKind.EOF;
+
+/**
+ * Driver for compiling several j-- source files together. Main hands over to
+ * this driver when it is given more than one source file (or a directory). The
+ * compilation proceeds in the same steps as for a single file, with the
+ * following differences:
+ * 
+ * (1) The files are scanned and parsed in parallel, on a ForkJoinPool with one
+ * thread per available processor.
+ * 
+ * (2) Pre-analysis makes the types declared in all the compilation units
+ * visible to each of them, so that a unit may refer to a type declared in
+ * another. All units are part of one Compilation, and so share one symbol
+ * table. Pre-analysis is sequential, as the units' steps depend on one
+ * another.
+ * 
+ * (3) Analysis and code generation are then done in parallel again, each unit
+ * reporting errors through its own contexts.
+ * 
+ * Whatever the parallel steps write to STDOUT and STDERR is buffered per file,
+ * and written out in the order the files were given, so that the diagnostics
+ * are the same from one run to the next.
+ */
+
+class ParallelDriver {
+
+    /** The source files to compile. */
+    private ArrayList<String> sourceFiles;
+
+    /** Debug option (-t, -p, -pa or -a), or "" for none. */
+    private String debugOption;
+
+    /** Where to place the output files. */
+    private String outputDir;
+
+    /** Whether SPIM output was asked for. */
+    private boolean spimOutput;
+
+    /** Register allocation scheme for SPIM output. */
+    private String registerAllocation;
+
+    /** Maximum number of physical registers for SPIM output. */
+    private int maxRegisterCount;
+
+    /** Whether an error occurred during compilation. */
+    private boolean errorHasOccurred;
+
+    /**
+     * Routes STDOUT for the threads of all ParallelDrivers running in the
+     * process; null while none is running.
+     */
+    private static PerThreadOutputStream out;
+
+    /** Routes STDERR likewise. */
+    private static PerThreadOutputStream err;
+
+    /** STDOUT and STDERR as they were before being routed. */
+    private static PrintStream stdout, stderr;
+
+    /** Number of ParallelDrivers whose tasks are running. */
+    private static int running;
+
+    /**
+     * Construct a ParallelDriver.
+     * 
+     * @param sourceFiles
+     *            the source files to compile.
+     * @param debugOption
+     *            debug option (-t, -p, -pa or -a), or "" for none.
+     * @param outputDir
+     *            where to place the output files.
+     * @param spimOutput
+     *            whether SPIM output was asked for.
+     * @param registerAllocation
+     *            register allocation scheme for SPIM output.
+     * @param maxRegisterCount
+     *            maximum number of physical registers for SPIM output.
+     */
+
+    public ParallelDriver(ArrayList<String> sourceFiles, String debugOption,
+            String outputDir, boolean spimOutput, String registerAllocation,
+            int maxRegisterCount) {
+        this.sourceFiles = sourceFiles;
+        this.debugOption = debugOption;
+        this.outputDir = outputDir;
+        this.spimOutput = spimOutput;
+        this.registerAllocation = registerAllocation;
+        this.maxRegisterCount = maxRegisterCount;
+    }
+
+    /**
+     * Compile the source files.
+     * 
+     * @return true if an error occurred; false otherwise.
+     */
+
+    public boolean compile() {
+        errorHasOccurred = false;
+
+        // Scan and parse the files in parallel
+        ArrayList<ParseTask> parseTasks = new ArrayList<ParseTask>();
+        for (String sourceFile : sourceFiles) {
+            parseTasks.add(new ParseTask(sourceFile));
+        }
+        ArrayList<JCompilationUnit> units = new ArrayList<JCompilationUnit>();
+        for (JCompilationUnit unit : invokeAll(parseTasks)) {
+            if (unit != null) {
+                units.add(unit);
+            }
+        }
+        if (debugOption.equals("-t")) {
+            return errorHasOccurred;
+        }
+        if (debugOption.equals("-p")) {
+            writeToStdOut(units);
+            return errorHasOccurred;
+        }
+        if (errorHasOccurred) {
+            return true;
+        }
+
+        // Do pre-analysis, sharing the declared types among the
+        // units
+        Compilation compilation = new Compilation();
+        for (JCompilationUnit unit : units) {
+            unit.declareTypes(compilation);
+        }
+        for (JCompilationUnit unit : units) {
+            unit.declareImportedTypes(units);
+        }
+        for (JCompilationUnit unit : units) {
+            unit.preAnalyzeTypes();
+            errorHasOccurred |= unit.errorHasOccurred();
+        }
+        if (debugOption.equals("-pa")) {
+            writeToStdOut(units);
+            return errorHasOccurred;
+        }
+        if (errorHasOccurred) {
+            return true;
+        }
+
+        // Do analysis in parallel
+        ArrayList<AnalyzeTask> analyzeTasks = new ArrayList<AnalyzeTask>();
+        for (JCompilationUnit unit : units) {
+            analyzeTasks.add(new AnalyzeTask(unit));
+        }
+        invokeAll(analyzeTasks);
+        if (debugOption.equals("-a")) {
+            writeToStdOut(units);
+            return errorHasOccurred;
+        }
+        if (errorHasOccurred) {
+            return true;
+        }
+
+        // Generate JVM code in parallel
+        ArrayList<CodegenTask> codegenTasks = new ArrayList<CodegenTask>();
+        for (JCompilationUnit unit : units) {
+            codegenTasks.add(new CodegenTask(unit));
+        }
+        invokeAll(codegenTasks);
+        if (errorHasOccurred) {
+            return true;
+        }
+
+        // If SPIM output was asked for, convert the in-memory
+        // JVM instructions to SPIM. The SPIM back-end keeps its
+        // state in static fields, so this is done one unit at a
+        // time, and only by one compilation at a time.
+        if (spimOutput) {
+            synchronized (NEmitter.class) {
+                NPhysicalRegister.MAX_COUNT = maxRegisterCount;
+                for (int i = 0; i < units.size(); i++) {
+                    NEmitter nEmitter = new NEmitter(sourceFiles.get(i), units
+                            .get(i).clFiles(), registerAllocation);
+                    nEmitter.destinationDir(outputDir);
+                    nEmitter.write();
+                    errorHasOccurred |= nEmitter.errorHasOccurred();
+                }
+            }
+        }
+        return errorHasOccurred;
+    }
+
+    /**
+     * Run the specified tasks in parallel, and return their results in order.
+     * What each task writes to STDOUT and STDERR is written out afterwards, in
+     * the order of the tasks.
+     * 
+     * @param tasks
+     *            the tasks.
+     * @return the results of the tasks.
+     */
+
+    private <T> ArrayList<T> invokeAll(
+            ArrayList<? extends BufferedTask<T>> tasks) {
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        startRouting();
+        ForkJoinPool pool = new ForkJoinPool();
+        ArrayList<T> results = new ArrayList<T>();
+        try {
+            for (Future<T> result : pool.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errorHasOccurred = true;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+            stopRouting();
+        }
+
+        // Write out what each task buffered, in order
+        for (BufferedTask<T> task : tasks) {
+            stdout.print(task.out);
+            stdout.flush();
+            stderr.print(task.err);
+            stderr.flush();
+            errorHasOccurred |= task.errorHasOccurred;
+        }
+        return results;
+    }
+
+    /**
+     * Route STDOUT and STDERR through PerThreadOutputStreams, unless another
+     * ParallelDriver in the process has already done so.
+     */
+
+    private static synchronized void startRouting() {
+        if (running++ == 0) {
+            stdout = System.out;
+            stderr = System.err;
+            out = new PerThreadOutputStream(stdout);
+            err = new PerThreadOutputStream(stderr);
+            System.setOut(new PrintStream(out, true));
+            System.setErr(new PrintStream(err, true));
+        }
+    }
+
+    /**
+     * Restore STDOUT and STDERR, once no ParallelDriver in the process is
+     * running tasks any more.
+     */
+
+    private static synchronized void stopRouting() {
+        if (--running == 0) {
+            System.setOut(stdout);
+            System.setErr(stderr);
+            out = null;
+            err = null;
+        }
+    }
+
+    /**
+     * Write the specified ASTs to STDOUT.
+     * 
+     * @param units
+     *            the compilation units.
+     */
+
+    private void writeToStdOut(ArrayList<JCompilationUnit> units) {
+        for (JCompilationUnit unit : units) {
+            unit.writeToStdOut(new PrettyPrinter());
+        }
+    }
+
+    /**
+     * A step of the compilation of one compilation unit (or source file), which
+     * buffers what it writes to STDOUT and STDERR.
+     */
+
+    private abstract class BufferedTask<T> implements Callable<T> {
+
+        /** What the task wrote to STDOUT. */
+        public String out = "";
+
+        /** What the task wrote to STDERR. */
+        public String err = "";
+
+        /** Whether an error occurred in the task. */
+        public boolean errorHasOccurred;
+
+        /**
+         * Run the task, buffering what it writes to STDOUT and STDERR.
+         * 
+         * @return the result of the task.
+         */
+
+        public T call() {
+            ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+            ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+            ParallelDriver.out.route(outBuffer);
+            ParallelDriver.err.route(errBuffer);
+            try {
+                return run();
+            } finally {
+                System.out.flush();
+                System.err.flush();
+                ParallelDriver.out.route(null);
+                ParallelDriver.err.route(null);
+                out = outBuffer.toString();
+                err = errBuffer.toString();
+            }
+        }
+
+        /**
+         * Do the work of the task.
+         * 
+         * @return the result of the task.
+         */
+
+        protected abstract T run();
+
+    }
+
+    /**
+     * Scans and parses one source file.
+     */
+
+    private class ParseTask extends BufferedTask<JCompilationUnit> {
+
+        /** The source file. */
+        private String sourceFile;
+
+        /**
+         * Construct a ParseTask.
+         * 
+         * @param sourceFile
+         *            the source file.
+         */
+
+        public ParseTask(String sourceFile) {
+            this.sourceFile = sourceFile;
+        }
+
+        /**
+         * Scan and parse the source file, returning its AST (or null with the
+         * -t option, or if the file is not found).
+         * 
+         * @return the compilation unit, or null.
+         */
+
+        protected JCompilationUnit run() {
+            LookaheadScanner scanner = null;
+            try {
+                scanner = new LookaheadScanner(sourceFile);
+            } catch (FileNotFoundException e) {
+                System.err.println("Error: file " + sourceFile
+                        + " not found.");
+                errorHasOccurred = true;
+                return null;
+            }
+            if (debugOption.equals("-t")) {
+                // Just tokenize input and print the tokens to STDOUT
+                TokenInfo token;
+                do {
+                    scanner.next();
+                    token = scanner.token();
+                    System.out.printf("%d\t : %s = %s\n", token.line(), token
+                            .tokenRep(), token.image());
+                } while (token.kind() != EOF);
+                errorHasOccurred |= scanner.errorHasOccured();
+                return null;
+            }
+            Parser parser = new Parser(scanner);
+            JCompilationUnit unit = parser.compilationUnit();
+            errorHasOccurred |= parser.errorHasOccurred();
+            return unit;
+        }
+
+    }
+
+    /**
+     * Analyzes one (pre-analyzed) compilation unit.
+     */
+
+    private class AnalyzeTask extends BufferedTask<JCompilationUnit> {
+
+        /** The compilation unit. */
+        private JCompilationUnit unit;
+
+        /**
+         * Construct an AnalyzeTask.
+         * 
+         * @param unit
+         *            the compilation unit.
+         */
+
+        public AnalyzeTask(JCompilationUnit unit) {
+            this.unit = unit;
+        }
+
+        /**
+         * Analyze the compilation unit.
+         * 
+         * @return the analyzed compilation unit.
+         */
+
+        protected JCompilationUnit run() {
+            unit.analyze(null);
+            errorHasOccurred |= unit.errorHasOccurred();
+            return unit;
+        }
+
+    }
+
+    /**
+     * Generates JVM code for one (analyzed) compilation unit.
+     */
+
+    private class CodegenTask extends BufferedTask<JCompilationUnit> {
+
+        /** The compilation unit. */
+        private JCompilationUnit unit;
+
+        /**
+         * Construct a CodegenTask.
+         * 
+         * @param unit
+         *            the compilation unit.
+         */
+
+        public CodegenTask(JCompilationUnit unit) {
+            this.unit = unit;
+        }
+
+        /**
+         * Generate JVM code for the compilation unit.
+         * 
+         * @return the compilation unit.
+         */
+
+        protected JCompilationUnit run() {
+            CLEmitter clEmitter = new CLEmitter(!spimOutput);
+            clEmitter.destinationDir(outputDir);
+            unit.codegen(clEmitter);
+            errorHasOccurred |= clEmitter.errorHasOccurred();
+            return unit;
+        }
+
+    }
+
+}
+
+/**
+ * An output stream that routes what each thread writes to a stream of its own,
+ * if one has been set for it, or else to a default stream.
+ */
+
+class PerThreadOutputStream extends OutputStream {
+
+    /** Stream written to by threads with no stream of their own. */
+    private OutputStream defaultStream;
+
+    /** Each thread's own stream. */
+    private ThreadLocal<OutputStream> streams;
+
+    /**
+     * Construct a PerThreadOutputStream.
+     * 
+     * @param defaultStream
+     *            stream written to by threads with no stream of their own.
+     */
+
+    public PerThreadOutputStream(OutputStream defaultStream) {
+        this.defaultStream = defaultStream;
+        this.streams = new ThreadLocal<OutputStream>();
+    }
+
+    /**
+     * Route what the current thread writes to the specified stream, or, if it
+     * is null, to the default stream.
+     * 
+     * @param stream
+     *            the stream, or null.
+     */
+
+    public void route(OutputStream stream) {
+        streams.set(stream);
+    }
+
+    /**
+     * Return the stream the current thread writes to.
+     * 
+     * @return the stream.
+     */
+
+    private OutputStream stream() {
+        OutputStream stream = streams.get();
+        return stream == null ? defaultStream : stream;
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void write(int b) throws IOException {
+        stream().write(b);
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        stream().write(b, off, len);
+    }
+
+    /**
+     * @inheritDoc
+     */
+
+    public void flush() throws IOException {
+        stream().flush();
+    }
+
+}
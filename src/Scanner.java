@@ -2,11 +2,14 @@
 
 package jminusminus;
 
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
-import java.util.Hashtable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 
 import static jminusminus.TokenKind.*;
 
@@ -24,7 +27,20 @@ class Scanner {
     public final static char EOFCH = CharReader.EOFCH;
 
     /** Keywords in j--. */
-    private Hashtable<String, TokenKind> reserved;
+    private static final KeywordTable reserved = new KeywordTable(
+            ABSTRACT, ASSERT, BOOLEAN, BREAK, BYTE, CASE, CATCH, CHAR, CLASS,
+            CONST, CONTINUE, DEFAULT, DO, DOUBLE, ELSE, ENUM, EXTENDS, FALSE,
+            FINAL, FINALLY, FLOAT, FOR, GOTO, IF, IMPLEMENTS, IMPORT,
+            INSTANCEOF, INT, INTERFACE, LONG, NATIVE, NEW, NULL, PACKAGE,
+            PRIVATE, PROTECTED, PUBLIC, RETURN, SHORT, STATIC, STRICTFP, SUPER,
+            SWITCH, SYNCHRONIZED, THIS, THROW, THROWS, TRANSIENT, TRUE, TRY,
+            VOID, VOLATILE, WHILE);
+
+    /** Names of the identifiers scanned so far. */
+    private NameTable names;
+
+    /** Buffer in which the image of a literal is collected. */
+    private StringBuilder literal;
 
     /** Source characters. */
     private CharReader input;
@@ -54,62 +70,8 @@ class Scanner {
         this.input = new CharReader(fileName);
         this.fileName = fileName;
         isInError = false;
-
-        // Keywords in j--
-        reserved = new Hashtable<String, TokenKind>();
-        reserved.put(ABSTRACT.image(), ABSTRACT);
-        reserved.put(ASSERT.image(), ASSERT);
-        reserved.put(BOOLEAN.image(), BOOLEAN);
-        reserved.put(BREAK.image(), BREAK);
-        reserved.put(BYTE.image(), BYTE);
-        reserved.put(CASE.image(), CASE);
-        reserved.put(CATCH.image(), CATCH);
-        reserved.put(CHAR.image(), CHAR);
-        reserved.put(CLASS.image(), CLASS);
-        reserved.put(CONST.image(), CONST);
-        reserved.put(CONTINUE.image(), CONTINUE);
-        reserved.put(DEFAULT.image(), DEFAULT);
-        reserved.put(DO.image(), DO);
-        reserved.put(DOUBLE.image(), DOUBLE);
-        reserved.put(ELSE.image(), ELSE);
-        reserved.put(ENUM.image(), ENUM);
-        reserved.put(EXTENDS.image(), EXTENDS);
-        reserved.put(FALSE.image(), FALSE);
-        reserved.put(FINAL.image(), FINAL);
-        reserved.put(FINALLY.image(), FINALLY);
-        reserved.put(FLOAT.image(), FLOAT);
-        reserved.put(FOR.image(), FOR);
-        reserved.put(GOTO.image(), GOTO);
-        reserved.put(IF.image(), IF);
-        reserved.put(IMPLEMENTS.image(), IMPLEMENTS);
-        reserved.put(IMPORT.image(), IMPORT);
-        reserved.put(INSTANCEOF.image(), INSTANCEOF);
-        reserved.put(INT.image(), INT);
-        reserved.put(INTERFACE.image(), INTERFACE);
-        reserved.put(LONG.image(), LONG);
-        reserved.put(NATIVE.image(), NATIVE);
-        reserved.put(NEW.image(), NEW);
-        reserved.put(NULL.image(), NULL);
-        reserved.put(PACKAGE.image(), PACKAGE);
-        reserved.put(PRIVATE.image(), PRIVATE);
-        reserved.put(PROTECTED.image(), PROTECTED);
-        reserved.put(PUBLIC.image(), PUBLIC);
-        reserved.put(RETURN.image(), RETURN);
-        reserved.put(SHORT.image(), SHORT);
-        reserved.put(STATIC.image(), STATIC);
-        reserved.put(STRICTFP.image(), STRICTFP);
-        reserved.put(SUPER.image(), SUPER);
-        reserved.put(SWITCH.image(), SWITCH);
-        reserved.put(SYNCHRONIZED.image(), SYNCHRONIZED);
-        reserved.put(THIS.image(), THIS);
-        reserved.put(THROW.image(), THROW);
-        reserved.put(THROWS.image(), THROWS);
-        reserved.put(TRANSIENT.image(), TRANSIENT);
-        reserved.put(TRUE.image(), TRUE);
-        reserved.put(TRY.image(), TRY);
-        reserved.put(VOID.image(), VOID);
-        reserved.put(VOLATILE.image(), VOLATILE);
-        reserved.put(WHILE.image(), WHILE); 
+        names = new NameTable();
+        literal = new StringBuilder();
 
         // Prime the pump.
         nextCh();
@@ -122,7 +84,7 @@ class Scanner {
      */
 
     public TokenInfo getNextToken() {
-        StringBuffer buffer;
+        StringBuilder buffer;
         boolean moreWhiteSpace = true;
         while (moreWhiteSpace) {
             while (isWhitespace(ch)) {
@@ -331,7 +293,7 @@ class Scanner {
         	nextCh();
         	return new TokenInfo(ANNOTATION, line); 
         case '\'':
-        	buffer = new StringBuffer();
+        	buffer = newBuffer();
         	bufferIncrement(buffer);
         	if(ch == '\\'){
         		bufferIncrement(buffer);
@@ -515,7 +477,7 @@ class Scanner {
         		}
         	}
         case '"':
-            buffer = new StringBuffer();
+            buffer = newBuffer();
             bufferIncrement(buffer);
             while (ch != '"' && ch != '\n' && ch != EOFCH) {
                 if (ch == '\\') {
@@ -644,7 +606,7 @@ class Scanner {
             }
             return new TokenInfo(STRING_LITERAL, buffer.toString(), line);
         case '.':
-        	buffer = new StringBuffer();
+        	buffer = newBuffer();
             bufferIncrement(buffer);
             if(isDigit(ch)){
             	while(isDigit(ch)){
@@ -671,7 +633,7 @@ class Scanner {
         case EOFCH:
             return new TokenInfo(EOF, line);
         case '0':
-        	buffer = new StringBuffer();
+        	buffer = newBuffer();
             bufferIncrement(buffer);
             if(isHexa(ch)){ 
             	bufferIncrement(buffer);
@@ -846,7 +808,7 @@ class Scanner {
         case '7':
         case '8':
         case '9':
-            buffer = new StringBuffer();
+            buffer = newBuffer();
             if(isDigit(ch)){
             	bufferIncrement(buffer);
             	while(isDigit(ch)){
@@ -890,16 +852,24 @@ class Scanner {
            
         default:
             if (isIdentifierStart(ch)) {
-                buffer = new StringBuffer();
+                // The identifier is a slice of the source, looked up
+                // (without first being copied) as a keyword, and
+                // otherwise interned
+                char[] source = input.buffer();
+                int start = input.offset();
+                int hash = 0;
                 while (isIdentifierPart(ch)) {
-                    buffer.append(ch);
+                    hash = 31 * hash + ch;
                     nextCh();
                 }
-                String identifier = buffer.toString();
-                if (reserved.containsKey(identifier)) {
-                	return new TokenInfo(reserved.get(identifier), line);
+                int length = input.offset() - start;
+                TokenKind keyword = reserved.lookup(source, start, length,
+                        hash);
+                if (keyword != null) {
+                    return new TokenInfo(keyword, line);
                 } else {
-                    return new TokenInfo(IDENTIFIER, identifier, line);
+                    return new TokenInfo(IDENTIFIER, names.intern(source,
+                            start, length, hash), line);
                 }
             } else {
                 reportScannerError("Unidentified input token: '%c'", ch);
@@ -909,6 +879,19 @@ class Scanner {
         }
     }
 
+    /**
+     * Return the (emptied) buffer in which the image of a literal is
+     * collected. A single buffer serves all the literals scanned, as the image
+     * is copied out of it when the token is made.
+     * 
+     * @return the literal buffer.
+     */
+
+    private StringBuilder newBuffer() {
+        literal.setLength(0);
+        return literal;
+    }
+
     /**
      * Advance ch to the next character from input, and update the line number.
      */
@@ -1077,9 +1060,9 @@ class Scanner {
    /**
     * appends current character to buffer and gets next character.
     * @param buffer
-    * @return StringBuffer
+    * @return StringBuilder
     */
-   private StringBuffer bufferIncrement(StringBuffer buffer){
+   private StringBuilder bufferIncrement(StringBuilder buffer){
 	  buffer.append(ch);
 	  nextCh();
 	  return buffer;
@@ -1090,7 +1073,7 @@ class Scanner {
     * @param buffer
     * @return TokenInfo
     */
-   private TokenInfo binaryExponentCall(StringBuffer buffer){
+   private TokenInfo binaryExponentCall(StringBuilder buffer){
 	   bufferIncrement(buffer);
 		if( isPlusOrMinus(ch) ){
 			bufferIncrement(buffer);
@@ -1139,7 +1122,7 @@ class Scanner {
     * @param buffer
     * @return TokenInfo
     */
-   private TokenInfo exponentCall(StringBuffer buffer){
+   private TokenInfo exponentCall(StringBuilder buffer){
 	   bufferIncrement(buffer);
 		if( isPlusOrMinus(ch) ){
 			bufferIncrement(buffer);
@@ -1279,6 +1262,11 @@ class Scanner {
  * A buffered character reader. Abstracts out differences between platforms,
  * mapping all new lines to '\n'. Also, keeps track of line numbers where the
  * first line is numbered 1.
+ * 
+ * The whole source file is read (or, when it is large, memory-mapped) at once
+ * and decoded from UTF-8 into a char array, so that scanning a character is no
+ * more than an array access; line numbers are counted as new lines are
+ * scanned.
  */
 
 class CharReader {
@@ -1286,8 +1274,32 @@ class CharReader {
     /** A representation of the end of file as a character. */
     public final static char EOFCH = (char) -1;
 
-    /** The underlying reader records line numbers. */
-    private LineNumberReader lineNumberReader;
+    /** Files at least this large are memory-mapped rather than read. */
+    private final static int MAP_THRESHOLD = 1 << 16;
+
+    /** The decoded source. */
+    private char[] buffer;
+
+    /** Number of characters in the buffer. */
+    private int limit;
+
+    /** Index of the next character in the buffer. */
+    private int position;
+
+    /**
+     * Index in the buffer of the character last scanned (or of the end of the
+     * buffer, once the end of file has been scanned).
+     */
+    private int offset;
+
+    /** The current line number. */
+    private int line;
+
+    /** Has the end of file been scanned? */
+    private boolean atEnd;
+
+    /** Error that occurred while reading the file, if any. */
+    private IOException error;
 
     /** Name of the file that is being read. */
     private String fileName;
@@ -1302,20 +1314,80 @@ class CharReader {
      */
 
     public CharReader(String fileName) throws FileNotFoundException {
-        lineNumberReader = new LineNumberReader(new FileReader(fileName));
+        FileInputStream in = new FileInputStream(fileName);
         this.fileName = fileName;
+        line = 1;
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            ByteBuffer bytes;
+            if (size >= MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+                    // Keep reading
+                }
+                bytes.flip();
+            }
+            CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(bytes);
+            buffer = chars.array();
+            limit = chars.limit();
+        } catch (IOException e) {
+            // Reported when the first character is scanned
+            error = e;
+            buffer = new char[0];
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
     }
 
     /**
-     * Scan the next character.
+     * Scan the next character. A carriage return, alone or followed by a line
+     * feed, is scanned as a single '\n'.
      * 
      * @return the character scanned.
      * @exception IOException
-     *                if an I/O error occurs.
+     *                if an I/O error occurred while reading the file.
      */
 
     public char nextChar() throws IOException {
-        return (char) lineNumberReader.read();
+        if (error != null) {
+            IOException e = error;
+            error = null;
+            throw e;
+        }
+        offset = position;
+        if (position >= limit) {
+            if (!atEnd) {
+                atEnd = true;
+                // A last line with no new line is counted when the end of
+                // file is scanned, as LineNumberReader does.
+                if (limit > 0 && buffer[limit - 1] != '\n'
+                        && buffer[limit - 1] != '\r') {
+                    line++;
+                }
+            }
+            return EOFCH;
+        }
+        char c = buffer[position++];
+        if (c == '\n') {
+            line++;
+        } else if (c == '\r') {
+            line++;
+            if (position < limit && buffer[position] == '\n') {
+                position++;
+            }
+            c = '\n';
+        }
+        return c;
     }
 
     /**
@@ -1325,8 +1397,30 @@ class CharReader {
      */
 
     public int line() {
-        // LineNumberReader counts lines from 0.
-        return lineNumberReader.getLineNumber() + 1;
+        return line;
+    }
+
+    /**
+     * Return the buffer holding the decoded source. Characters that do not
+     * span a new line may be read from it directly, as slices between two
+     * offsets.
+     * 
+     * @return the source buffer.
+     */
+
+    public char[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * Return the index in the buffer of the character last scanned, or the
+     * length of the source once the end of file has been scanned.
+     * 
+     * @return the offset of the last character scanned.
+     */
+
+    public int offset() {
+        return offset;
     }
 
     /**
@@ -1340,14 +1434,225 @@ class CharReader {
     }
 
     /**
-     * Close the file.
+     * Close the file. The file is read in full, and closed, when the
+     * CharReader is constructed; this releases the buffer.
      * 
      * @exception IOException
      *                if an I/O error occurs.
      */
 
     public void close() throws IOException {
-        lineNumberReader.close();
+        buffer = new char[0];
+        limit = 0;
+        position = 0;
+    }
+
+}
+
+/**
+ * The keywords of j--, in a perfect hash table: each keyword has a slot of its
+ * own, so that a candidate name is looked up with a single probe and a single
+ * comparison. The size of the table (and so the hash function) is chosen when
+ * the table is built, as the smallest that separates all the keywords.
+ */
+
+class KeywordTable {
+
+    /** Keyword kinds, indexed by the hashes of their images. */
+    private TokenKind[] kinds;
+
+    /** Images of the keywords, in the same slots as their kinds. */
+    private char[][] images;
+
+    /** Number of bits in a slot index. */
+    private int bits;
+
+    /** Length of the longest keyword. */
+    private int maxLength;
+
+    /**
+     * Construct a KeywordTable for the specified keywords.
+     * 
+     * @param keywords
+     *            the keyword kinds; their images are the keywords.
+     */
+
+    public KeywordTable(TokenKind... keywords) {
+        for (bits = 1;; bits++) {
+            kinds = new TokenKind[1 << bits];
+            images = new char[1 << bits][];
+            boolean perfect = true;
+            for (TokenKind keyword : keywords) {
+                String image = keyword.image();
+                int slot = slot(image.hashCode());
+                if (kinds[slot] != null) {
+                    perfect = false;
+                    break;
+                }
+                kinds[slot] = keyword;
+                images[slot] = image.toCharArray();
+                maxLength = Math.max(maxLength, image.length());
+            }
+            if (perfect) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Return the kind of the keyword spelled by the specified slice of
+     * characters, or null if it is not a keyword.
+     * 
+     * @param source
+     *            characters holding the candidate.
+     * @param start
+     *            index of the candidate's first character.
+     * @param length
+     *            length of the candidate.
+     * @param hash
+     *            hash of the candidate (as String.hashCode() computes it).
+     * @return the keyword kind or null.
+     */
+
+    public TokenKind lookup(char[] source, int start, int length, int hash) {
+        if (length > maxLength) {
+            return null;
+        }
+        int slot = slot(hash);
+        char[] image = images[slot];
+        if (image == null || image.length != length) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            if (image[i] != source[start + i]) {
+                return null;
+            }
+        }
+        return kinds[slot];
+    }
+
+    /**
+     * Return the slot for the specified hash: its top bits, after
+     * multiplication by the golden ratio.
+     * 
+     * @param hash
+     *            the hash.
+     * @return the slot.
+     */
+
+    private int slot(int hash) {
+        return (hash * 0x9E3779B9) >>> (32 - bits);
+    }
+
+}
+
+/**
+ * The names of the identifiers scanned in a source file, interned: each name
+ * is made into a String the first time it is scanned, and that String is the
+ * image of all the identifiers with the name. Names are looked up as slices of
+ * the source buffer, so scanning a name seen before allocates nothing.
+ */
+
+class NameTable {
+
+    /** The names, in an open-addressed hash table. */
+    private String[] names;
+
+    /** Hashes of the names, in the same slots as the names. */
+    private int[] hashes;
+
+    /** Number of names in the table. */
+    private int size;
+
+    /**
+     * Construct an empty NameTable.
+     */
+
+    public NameTable() {
+        names = new String[256];
+        hashes = new int[256];
+    }
+
+    /**
+     * Return the name spelled by the specified slice of characters, adding it
+     * to the table if it is not there yet.
+     * 
+     * @param source
+     *            characters holding the name.
+     * @param start
+     *            index of the name's first character.
+     * @param length
+     *            length of the name.
+     * @param hash
+     *            hash of the name (as String.hashCode() computes it).
+     * @return the interned name.
+     */
+
+    public String intern(char[] source, int start, int length, int hash) {
+        int mask = names.length - 1;
+        int slot = hash & mask;
+        for (String name = names[slot]; name != null; name = names[slot]) {
+            if (hashes[slot] == hash && matches(name, source, start, length)) {
+                return name;
+            }
+            slot = (slot + 1) & mask;
+        }
+        String name = new String(source, start, length);
+        names[slot] = name;
+        hashes[slot] = hash;
+        if (++size * 2 > names.length) {
+            grow();
+        }
+        return name;
+    }
+
+    /**
+     * Does the specified name spell the specified slice of characters?
+     * 
+     * @param name
+     *            the name.
+     * @param source
+     *            characters holding the slice.
+     * @param start
+     *            index of the slice's first character.
+     * @param length
+     *            length of the slice.
+     * @return true or false.
+     */
+
+    private static boolean matches(String name, char[] source, int start,
+            int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != source[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Double the capacity of the table, keeping it at most half full.
+     */
+
+    private void grow() {
+        String[] oldNames = names;
+        int[] oldHashes = hashes;
+        names = new String[oldNames.length * 2];
+        hashes = new int[oldNames.length * 2];
+        int mask = names.length - 1;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                names[slot] = oldNames[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
     }
 
 }
@@ -2,16 +2,17 @@
 
 package jminusminus;
 
-import java.lang.reflect.Array;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * For representing j-- types. All types are represented underneath (in the
- * classRep field) by Java objects of type Class. These objects represent types
- * in Java, so this should ease our interfacing with existing Java classes.
+ * classRep field) by class symbols (CLClassSymbol), read from the class files of
+ * existing Java classes or built from the partial classes of the types being
+ * compiled. Analysis therefore never loads (or initializes) a class in the JVM.
  * 
  * Class types (reference types that are represented by the identifiers
  * introduced in class declarations) are represented using TypeName. So for now,
@@ -24,47 +25,76 @@ import java.util.Hashtable;
 
 class Type {
 
-    /** The Type's internal (Java) representation. * */
-    private Class<?> classRep;
+    /** The Type's internal (class symbol) representation. * */
+    private CLClassSymbol classRep;
 
-    /** Maps type names to their Type representations. */
-    private static Hashtable<String, Type> types = new Hashtable<String, Type>();
+    /**
+     * Members of this type looked up so far, keyed by name and (for methods and
+     * constructors) argument descriptor; NO_MEMBER marks a lookup that found
+     * nothing.
+     */
+    private ConcurrentHashMap<String, Object> members =
+            new ConcurrentHashMap<String, Object>();
+
+    /** Marks a member that was looked up but not found. */
+    private static final Object NO_MEMBER = new Object();
+
+    /** Number of member lookups answered from the member caches. */
+    private static final AtomicLong memberCacheHits = new AtomicLong();
+
+    /** Number of member lookups that had to search the classes. */
+    private static final AtomicLong memberCacheMisses = new AtomicLong();
+
+    /**
+     * Maps class symbols to their Type representations, for types other than
+     * those in a compilation's symbol table (which are kept by the
+     * Compilation). Keyed by the symbol itself, as the LIBRARY symbol table
+     * has a single symbol for each such class.
+     */
+    private static ConcurrentHashMap<CLClassSymbol, Type> types =
+            new ConcurrentHashMap<CLClassSymbol, Type>();
 
     /** The primitive type, int. */
-    public final static Type INT = typeFor(int.class);
+    public final static Type INT = typeFor(CLClassSymbol.INT);
     
     /** The primitive type, double. */
-    public final static Type DOUBLE = typeFor(double.class);
+    public final static Type DOUBLE = typeFor(CLClassSymbol.DOUBLE);
 
     /** The primitive type, char. */
-    public final static Type CHAR = typeFor(char.class);
+    public final static Type CHAR = typeFor(CLClassSymbol.CHAR);
 
     /** The primitive type, boolean. */
-    public final static Type BOOLEAN = typeFor(boolean.class);
+    public final static Type BOOLEAN = typeFor(CLClassSymbol.BOOLEAN);
 
     /** java.lang.Integer. */
-    public final static Type BOXED_INT = typeFor(java.lang.Integer.class);
+    public final static Type BOXED_INT = typeFor(CLSymbolTable.LIBRARY
+            .lookup("java/lang/Integer"));
     
     /** java.lang.Boolean. */
-    public final static Type BOXED_DOUBLE = typeFor(java.lang.Double.class);
+    public final static Type BOXED_DOUBLE = typeFor(CLSymbolTable.LIBRARY
+            .lookup("java/lang/Double"));
 
     /** java.lang.Character. */
-    public final static Type BOXED_CHAR = typeFor(java.lang.Character.class);
+    public final static Type BOXED_CHAR = typeFor(CLSymbolTable.LIBRARY
+            .lookup("java/lang/Character"));
 
     /** java.lang.Boolean. */
-    public final static Type BOXED_BOOLEAN = typeFor(java.lang.Boolean.class);
+    public final static Type BOXED_BOOLEAN = typeFor(CLSymbolTable.LIBRARY
+            .lookup("java/lang/Boolean"));
 
     /** The type java.lang.String. */
-    public static Type STRING = typeFor(java.lang.String.class);
+    public static Type STRING = typeFor(CLSymbolTable.LIBRARY
+            .lookup("java/lang/String"));
 
     /** The type java.lang.Object. */
-    public static Type OBJECT = typeFor(java.lang.Object.class);
+    public static Type OBJECT = typeFor(CLSymbolTable.LIBRARY
+            .lookup("java/lang/Object"));
 
     /** The void type. */
-    public final static Type VOID = typeFor(void.class);
+    public final static Type VOID = typeFor(CLClassSymbol.VOID);
 
     /** The null void. */
-    public final static Type NULLTYPE = new Type(java.lang.Object.class);
+    public final static Type NULLTYPE = new Type(OBJECT.classRep);
 
     /**
      * A type marker indicating a constructor (having no return type).
@@ -75,15 +105,14 @@ class Type {
     public final static Type ANY = new Type(null);
 
     /**
-     * Construct a Type representation for a type from its Java (Class)
-     * representation. Use typeFor() -- that maps types having like classReps to
-     * like Types.
+     * Construct a Type representation for a type from its class symbol. Use
+     * typeFor() -- that maps types having like classReps to like Types.
      * 
      * @param classRep
-     *            the Java representation.
+     *            the class symbol.
      */
 
-    private Type(Class<?> classRep) {
+    private Type(CLClassSymbol classRep) {
         this.classRep = classRep;
     }
 
@@ -94,28 +123,53 @@ class Type {
     }
 
     /**
-     * Construct a Type representation for a type from its (Java) Class
-     * representation. Make sure there is a unique Type for each unique type.
+     * Construct a Type representation for a type from its class symbol. Make
+     * sure there is a unique Type for each unique type. The Types of classes
+     * (and arrays of classes) in a compilation's symbol table are unique within
+     * that compilation, by descriptor, as the compilation may define a class
+     * more than once.
+     * 
+     * Neither table is locked: a Type is looked up first, and created (with
+     * putIfAbsent(), so that only one is ever published) only if none is
+     * found.
      * 
      * @param classRep
-     *            the Java representation.
+     *            the class symbol.
      */
 
-    public static Type typeFor(Class<?> classRep) {
-        if (types.get(descriptorFor(classRep)) == null) {
-            types.put(descriptorFor(classRep), new Type(classRep));
+    public static Type typeFor(CLClassSymbol classRep) {
+        if (classRep == null) {
+            classRep = CLClassSymbol.VOID;
+        }
+        Type type = types.get(classRep);
+        if (type != null) {
+            return type;
         }
-        return types.get(descriptorFor(classRep));
+        CLSymbolTable table = classRep.table();
+        if (table != null && table.compilation() != null) {
+            ConcurrentHashMap<String, Type> declared = table.compilation()
+                    .types();
+            String descriptor = classRep.descriptor();
+            type = declared.get(descriptor);
+            if (type == null) {
+                type = new Type(classRep);
+                Type other = declared.putIfAbsent(descriptor, type);
+                type = other == null ? type : other;
+            }
+            return type;
+        }
+        type = new Type(classRep);
+        Type other = types.putIfAbsent(classRep, type);
+        return other == null ? type : other;
     }
 
     /**
-     * Return the class representation for a type, appropriate for dealing with
-     * the Java reflection API.
+     * Return the class symbol representing a type.
      * 
-     * @return the Class representation for this type.
+     * @return the class symbol for this type.
      */
 
-    public Class<?> classRep() {
+    public CLClassSymbol classRep() {
         return classRep;
     }
 
@@ -127,8 +181,9 @@ class Type {
      *            the partial class.
      */
 
-    public void setClassRep(Class<?> classRep) {
+    public void setClassRep(CLClassSymbol classRep) {
         this.classRep = classRep;
+        members.clear();
     }
 
     /**
@@ -160,7 +215,7 @@ class Type {
      */
 
     public Type componentType() {
-        return typeFor(classRep.getComponentType());
+        return typeFor(classRep.componentType());
     }
 
     /**
@@ -171,8 +226,8 @@ class Type {
      */
 
     public Type superClass() {
-        return classRep == null || classRep.getSuperclass() == null ? null
-                : typeFor(classRep.getSuperclass());
+        return classRep == null || classRep.superClass() == null ? null
+                : typeFor(classRep.superClass());
     }
 
     /**
@@ -212,7 +267,7 @@ class Type {
      */
 
     public boolean isFinal() {
-        return Modifier.isFinal(classRep.getModifiers());
+        return Modifier.isFinal(classRep.accessFlags());
     }
 
     /**
@@ -222,7 +277,7 @@ class Type {
      */
 
     public boolean isAbstract() {
-        return Modifier.isAbstract(classRep.getModifiers());
+        return Modifier.isAbstract(classRep.accessFlags());
     }
 
     /**
@@ -269,8 +324,8 @@ class Type {
 
     private ArrayList<Method> declaredAbstractMethods() {
         ArrayList<Method> declaredAbstractMethods = new ArrayList<Method>();
-        for (java.lang.reflect.Method method : classRep.getDeclaredMethods()) {
-            if (Modifier.isAbstract(method.getModifiers())) {
+        for (CLMemberSymbol method : classRep.declaredMethods()) {
+            if (Modifier.isAbstract(method.accessFlags())) {
                 declaredAbstractMethods.add(new Method(method));
             }
         }
@@ -285,8 +340,8 @@ class Type {
 
     private ArrayList<Method> declaredConcreteMethods() {
         ArrayList<Method> declaredConcreteMethods = new ArrayList<Method>();
-        for (java.lang.reflect.Method method : classRep.getDeclaredMethods()) {
-            if (!Modifier.isAbstract(method.getModifiers())) {
+        for (CLMemberSymbol method : classRep.declaredMethods()) {
+            if (!Modifier.isAbstract(method.accessFlags())) {
                 declaredConcreteMethods.add(new Method(method));
             }
         }
@@ -297,13 +352,16 @@ class Type {
      * An assertion that this type matches one of the specified types. If there
      * is no match, an error message is returned.
      * 
+     * @param context
+     *            context in which the match is checked.
      * @param line
      *            the line near which the mismatch occurs.
      * @param expectedTypes
      *            expected types.
      */
 
-    public void mustMatchOneOf(int line, Type... expectedTypes) {
+    public void mustMatchOneOf(Context context, int line,
+            Type... expectedTypes) {
         if (this == Type.ANY)
             return;
         for (int i = 0; i < expectedTypes.length; i++) {
@@ -311,7 +369,7 @@ class Type {
                 return;
             }
         }
-        JAST.compilationUnit.reportSemanticError(line,
+        context.compilationUnit().reportSemanticError(line,
                 "Type %s doesn't match any of the expected types %s", this,
                 Arrays.toString(expectedTypes));
     }
@@ -320,15 +378,18 @@ class Type {
      * An assertion that this type matches the specified type. If there is no
      * match, an error message is written.
      * 
+     * @param context
+     *            context in which the match is checked.
      * @param line
      *            the line near which the mismatch occurs.
      * @param expectedType
      *            type with which to match.
      */
 
-    public void mustMatchExpected(int line, Type expectedType) {
+    public void mustMatchExpected(Context context, int line,
+            Type expectedType) {
         if (!matchesExpected(expectedType)) {
-            JAST.compilationUnit.reportSemanticError(line,
+            context.compilationUnit().reportSemanticError(line,
                     "Type %s doesn't match type %s", this, expectedType);
         }
     }
@@ -350,28 +411,19 @@ class Type {
 
     /**
      * Do argument types match? A helper used for finding candidate methods and
-     * constructors.
+     * constructors. The types match when their parenthesized descriptors are
+     * equal.
      * 
      * @param argTypes1
-     *            arguments (classReps) of one method.
+     *            argument descriptor of one method, eg, (ILjava/lang/String;).
      * @param argTypes2
-     *            arguments (classReps) of another method.
+     *            argument descriptor of another method.
      * @return true iff all corresponding types of argTypes1 and argTypes2
      *         match.
      */
 
-    public static boolean argTypesMatch(Class<?>[] argTypes1,
-            Class<?>[] argTypes2) {
-        if (argTypes1.length != argTypes2.length) {
-            return false;
-        }
-        for (int i = 0; i < argTypes1.length; i++) {
-            if (!Type.descriptorFor(argTypes1[i]).equals(
-                    Type.descriptorFor(argTypes2[i]))) {
-                return false;
-            }
-        }
-        return true;
+    public static boolean argTypesMatch(String argTypes1, String argTypes2) {
+        return argTypes1.equals(argTypes2);
     }
 
     /**
@@ -382,7 +434,7 @@ class Type {
      */
 
     public String simpleName() {
-        return classRep.getSimpleName();
+        return classRep.simpleName();
     }
 
     /**
@@ -416,14 +468,8 @@ class Type {
      * @return the JVM descriptor.
      */
 
-    private static String descriptorFor(Class<?> cls) {
-        return cls == null ? "V" : cls == void.class ? "V"
-                : cls.isArray() ? "[" + descriptorFor(cls.getComponentType())
-                        : cls.isPrimitive() ? (cls == int.class ? "I"
-                                : cls == char.class ? "C"
-                                : cls == double.class ? "D"
-                                        : cls == boolean.class ? "Z" : "?")
-                                : "L" + cls.getName().replace('.', '/') + ";";
+    private static String descriptorFor(CLClassSymbol cls) {
+        return cls == null ? "V" : cls.descriptor();
     }
 
     /**
@@ -435,7 +481,7 @@ class Type {
 
     public String jvmName() {
         return this.isArray() || this.isPrimitive() ? this.toDescriptor()
-                : classRep.getName().replace('.', '/');
+                : classRep.internalName();
     }
 
     /**
@@ -448,9 +494,9 @@ class Type {
      * @return the Java denotation.
      */
 
-    private static String toJava(Class classRep) {
-        return classRep.isArray() ? toJava(classRep.getComponentType()) + "[]"
-                : classRep.getName();
+    private static String toJava(CLClassSymbol classRep) {
+        return classRep.isArray() ? toJava(classRep.componentType()) + "[]"
+                : classRep.javaName();
     }
 
     /**
@@ -491,23 +537,52 @@ class Type {
      */
 
     public Method methodFor(String name, Type[] argTypes) {
-        Class[] classes = new Class[argTypes.length];
-        for (int i = 0; i < argTypes.length; i++) {
-            classes[i] = argTypes[i].classRep;
+        String key = name + argumentDescriptor(argTypes);
+        Object member = members.get(key);
+        if (member == null) {
+            memberCacheMisses.incrementAndGet();
+            member = findMethod(name, argTypes);
+            members.put(key, member == null ? NO_MEMBER : member);
+        } else {
+            memberCacheHits.incrementAndGet();
         }
-        Class cls = classRep;
+        return member == NO_MEMBER ? null : (Method) member;
+    }
+
+    /**
+     * Search this type and its superclasses for the method with the given name
+     * and argument types.
+     * 
+     * @param name
+     *            the method name.
+     * @param argTypes
+     *            the argument types.
+     * @return Method with given name and argument types, or null.
+     */
 
-        // Search this class and all superclasses
+    private Method findMethod(String name, Type[] argTypes) {
+        String arguments = argumentDescriptor(argTypes);
+        CLClassSymbol cls = classRep;
+
+        // Search this class and all superclasses; a method with a
+        // covariant return type is preferred to the bridge method
+        // the compiler generated for it
         while (cls != null) {
-            java.lang.reflect.Method[] methods = cls.getDeclaredMethods();
-            for (java.lang.reflect.Method method : methods) {
-                if (method.getName().equals(name)
-                        && Type.argTypesMatch(classes, method
-                                .getParameterTypes())) {
-                    return new Method(method);
+            CLMemberSymbol bridge = null;
+            for (CLMemberSymbol method : cls.declaredMethods()) {
+                if (method.name().equals(name)
+                        && Type.argTypesMatch(arguments, method
+                                .argumentDescriptor())) {
+                    if ((method.accessFlags() & CLConstants.ACC_BRIDGE) == 0) {
+                        return new Method(method);
+                    }
+                    bridge = method;
                 }
             }
-            cls = cls.getSuperclass();
+            if (bridge != null) {
+                return new Method(bridge);
+            }
+            cls = cls.superClass();
         }
         return null;
     }
@@ -524,16 +599,32 @@ class Type {
      */
 
     public Constructor constructorFor(Type[] argTypes) {
-        Class[] classes = new Class[argTypes.length];
-        for (int i = 0; i < argTypes.length; i++) {
-            classes[i] = argTypes[i].classRep;
+        String key = "<init>" + argumentDescriptor(argTypes);
+        Object member = members.get(key);
+        if (member == null) {
+            memberCacheMisses.incrementAndGet();
+            member = findConstructor(argTypes);
+            members.put(key, member == null ? NO_MEMBER : member);
+        } else {
+            memberCacheHits.incrementAndGet();
         }
+        return member == NO_MEMBER ? null : (Constructor) member;
+    }
+
+    /**
+     * Search this type for the constructor with the given argument types.
+     * 
+     * @param argTypes
+     *            the argument types.
+     * @return Constructor with the specified argument types, or null.
+     */
+
+    private Constructor findConstructor(Type[] argTypes) {
+        String arguments = argumentDescriptor(argTypes);
 
         // Search only this class (we don't inherit constructors)
-        java.lang.reflect.Constructor[] constructors = classRep
-                .getDeclaredConstructors();
-        for (java.lang.reflect.Constructor constructor : constructors) {
-            if (argTypesMatch(classes, constructor.getParameterTypes())) {
+        for (CLMemberSymbol constructor : classRep.declaredConstructors()) {
+            if (argTypesMatch(arguments, constructor.argumentDescriptor())) {
                 return new Constructor(constructor);
             }
         }
@@ -549,19 +640,77 @@ class Type {
      */
 
     public Field fieldFor(String name) {
-        Class<?> cls = classRep;
+        Object member = members.get(name);
+        if (member == null) {
+            memberCacheMisses.incrementAndGet();
+            member = findField(name);
+            members.put(name, member == null ? NO_MEMBER : member);
+        } else {
+            memberCacheHits.incrementAndGet();
+        }
+        return member == NO_MEMBER ? null : (Field) member;
+    }
+
+    /**
+     * Search this type and its superclasses for the field with the given name.
+     * 
+     * @param name
+     *            the name of the field we want.
+     * @return the Field or null if it's not there.
+     */
+
+    private Field findField(String name) {
+        CLClassSymbol cls = classRep;
         while (cls != null) {
-            java.lang.reflect.Field[] fields = cls.getDeclaredFields();
-            for (java.lang.reflect.Field field : fields) {
-                if (field.getName().equals(name)) {
+            for (CLMemberSymbol field : cls.declaredFields()) {
+                if (field.name().equals(name)) {
                     return new Field(field);
                 }
             }
-            cls = cls.getSuperclass();
+            cls = cls.superClass();
         }
         return null;
     }
 
+    /**
+     * Return the number of member lookups (methodFor(), constructorFor() and
+     * fieldFor()) answered from the member caches of the Types.
+     * 
+     * @return the number of cache hits.
+     */
+
+    public static long memberCacheHits() {
+        return memberCacheHits.get();
+    }
+
+    /**
+     * Return the number of member lookups that had to search the classes.
+     * 
+     * @return the number of cache misses.
+     */
+
+    public static long memberCacheMisses() {
+        return memberCacheMisses.get();
+    }
+
+    /**
+     * Return the parenthesized descriptors of the specified argument types, eg,
+     * (ILjava/lang/String;). Methods and constructors match argument types
+     * exactly when these descriptors are equal.
+     * 
+     * @param argTypes
+     *            the argument types.
+     * @return the argument descriptor.
+     */
+
+    private static String argumentDescriptor(Type[] argTypes) {
+        StringBuffer descriptor = new StringBuffer("(");
+        for (Type argType : argTypes) {
+            descriptor.append(descriptorFor(argType.classRep));
+        }
+        return descriptor.append(")").toString();
+    }
+
     /**
      * Convert an array of argument types to a string representation of a
      * parenthesized list of the types, eg, (int, boolean, java.lang.String).
@@ -588,6 +737,8 @@ class Type {
      * Check the accessibility of a member from this type (that is, this type is
      * the referencing type).
      * 
+     * @param context
+     *            context in which the access occurs.
      * @param line
      *            the line in which the access occurs.
      * @param member
@@ -595,8 +746,8 @@ class Type {
      * @return true if access is valid; false otherwise.
      */
 
-    public boolean checkAccess(int line, Member member) {
-        if (!checkAccess(line, classRep, member.declaringType().classRep)) {
+    public boolean checkAccess(Context context, int line, Member member) {
+        if (!checkAccess(context, line, this, member.declaringType())) {
             return false;
         }
 
@@ -604,20 +755,15 @@ class Type {
         if (member.isPublic()) {
             return true;
         }
-        java.lang.Package p1 = classRep.getPackage();
-        java.lang.Package p2 = member.declaringType().classRep.getPackage();
-        if ((p1 == null ? "" : p1.getName()).equals((p2 == null ? "" : p2
-                .getName()))) {
+        if (classRep.packageName().equals(
+                member.declaringType().classRep.packageName())) {
             return true;
         }
         if (member.isProtected()) {
-            if (classRep.getPackage().getName().equals(
-                    member.declaringType().classRep.getPackage().getName())
-                    || typeFor(member.getClass().getDeclaringClass())
-                            .isJavaAssignableFrom(this)) {
+            if (member.declaringType().isJavaAssignableFrom(this)) {
                 return true;
             } else {
-                JAST.compilationUnit.reportSemanticError(line,
+                context.compilationUnit().reportSemanticError(line,
                         "The protected member, " + member.name()
                                 + ", is not accessible.");
                 return false;
@@ -625,10 +771,10 @@ class Type {
         }
         if (member.isPrivate()) {
             if (descriptorFor(classRep).equals(
-                    descriptorFor(member.member().getDeclaringClass()))) {
+                    descriptorFor(member.member().declaringClass()))) {
                 return true;
             } else {
-                JAST.compilationUnit.reportSemanticError(line,
+                context.compilationUnit().reportSemanticError(line,
                         "The private member, " + member.name()
                                 + ", is not accessible.");
                 return false;
@@ -639,7 +785,7 @@ class Type {
         if (packageName().equals(member.declaringType().packageName())) {
             return true;
         } else {
-            JAST.compilationUnit.reportSemanticError(line, "The member, "
+            context.compilationUnit().reportSemanticError(line, "The member, "
                     + member.name()
                     + ", is not accessible because it's in a different "
                     + "package.");
@@ -650,6 +796,8 @@ class Type {
     /**
      * Check the accesibility of a target type (from this type)
      * 
+     * @param context
+     *            context in which the access occurs.
      * @param line
      *            line in which the access occurs.
      * @param targetType
@@ -657,19 +805,21 @@ class Type {
      * @return true if access is valid; false otherwise.
      */
 
-    public boolean checkAccess(int line, Type targetType) {
+    public boolean checkAccess(Context context, int line, Type targetType) {
         if (targetType.isPrimitive()) {
             return true;
         }
         if (targetType.isArray()) {
-            return this.checkAccess(line, targetType.componentType());
+            return this.checkAccess(context, line, targetType.componentType());
         }
-        return checkAccess(line, classRep, targetType.classRep);
+        return checkAccess(context, line, this, targetType);
     }
 
     /**
      * Check the accessibility of a type.
      * 
+     * @param context
+     *            context in which the access occurs.
      * @param line
      *            the line in which the access occurs.
      * @param referencingType
@@ -679,18 +829,15 @@ class Type {
      * @return true if access is valid; false otherwise.
      */
 
-    public static boolean checkAccess(int line, Class referencingType,
-            Class type) {
-        java.lang.Package p1 = referencingType.getPackage();
-        java.lang.Package p2 = type.getPackage();
-        if (Modifier.isPublic(type.getModifiers())
-                || (p1 == null ? "" : p1.getName()).equals((p2 == null ? ""
-                        : p2.getName()))) {
+    public static boolean checkAccess(Context context, int line,
+            Type referencingType, Type type) {
+        if (Modifier.isPublic(type.classRep.accessFlags())
+                || referencingType.classRep.packageName().equals(
+                        type.classRep.packageName())) {
             return true;
         } else {
-            JAST.compilationUnit.reportSemanticError(line, "The type, "
-                    + type.getCanonicalName() + ", is not accessible from "
-                    + referencingType.getCanonicalName());
+            context.compilationUnit().reportSemanticError(line, "The type, "
+                    + type + ", is not accessible from " + referencingType);
             return false;
         }
     }
@@ -827,15 +974,17 @@ class TypeName extends Type {
     public Type resolve(Context context) {
         Type resolvedType = context.lookupType(name);
         if (resolvedType == null) {
-            // Try loading a type with the give fullname
-            try {
-                resolvedType = typeFor(Class.forName(name));
+            // Try looking up a type with the give fullname
+            CLClassSymbol symbol = context.compilationUnit().compilation()
+                    .symbols().lookup(name.replace('.', '/'));
+            if (symbol != null) {
+                resolvedType = typeFor(symbol);
                 context.addType(line, resolvedType);
                 // context.compilationUnitContext().addEntry(line,
                 // resolvedType.toString(),
                 // new TypeNameDefn(resolvedType));
-            } catch (Exception e) {
-                JAST.compilationUnit.reportSemanticError(line,
+            } else {
+                context.compilationUnit().reportSemanticError(line,
                         "Unable to locate a type named %s", name);
                 resolvedType = Type.ANY;
             }
@@ -843,8 +992,7 @@ class TypeName extends Type {
         if (resolvedType != Type.ANY) {
             Type referencingType = ((JTypeDecl) (context.classContext
                     .definition())).thisType();
-            Type.checkAccess(line, referencingType.classRep(), resolvedType
-                    .classRep());
+            Type.checkAccess(context, line, referencingType, resolvedType);
         }
         return resolvedType;
     }
@@ -853,7 +1001,7 @@ class TypeName extends Type {
 /**
  * The (temporary) representation of an array's type. It is built by the Parser
  * to stand in for a Type until analyze(), at which point it is resolved to an
- * actual Type object (having a Class that identifies it).
+ * actual Type object (having a class symbol that identifies it).
  */
 
 class ArrayTypeName extends Type {
@@ -912,12 +1060,7 @@ class ArrayTypeName extends Type {
 
     public Type resolve(Context context) {
         componentType = componentType.resolve(context);
-
-        // The API forces us to make an instance and get its
-        // type.
-        Class classRep = Array.newInstance(componentType().classRep(), 0)
-                .getClass();
-        return Type.typeFor(classRep);
+        return Type.typeFor(componentType().classRep().arrayType());
     }
 
 }
@@ -0,0 +1,28 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+import spim.SPIM;
+
+// A loop that updates an accumulator (t) that is never read, using a
+// parameter that is read nowhere else. Compile with -s linear at -r 3 up to
+// -r 18, or with -s graph at -r 2 up to -r 18; prints 45.
+
+public class D {
+
+    public static int dead(int n, int a) {
+        int s = 0;
+        int t = 0;
+        int i = 0;
+        while (n > i) {
+            t = t + a * 3;
+            s = s + i;
+            i = i + 1;
+        }
+        return s;
+    }
+
+    public static void main(String[] args) {
+        SPIM.printInt(dead(10, 4));
+        SPIM.printChar('\n');
+    }
+
+}
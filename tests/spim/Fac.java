@@ -0,0 +1,42 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+import spim.SPIM;
+
+// A loop that counts a parameter down (fac()), and a loop with a branch in
+// its body followed by a call (sum()). Compile with -s linear at -r 3 up to
+// -r 18, or with -s graph at -r 2 up to -r 18; prints 720 and 35, one per
+// line.
+
+public class Fac {
+
+    public static int fac(int n) {
+        int r = 1;
+        while (n > 0) {
+            r = r * n;
+            n = n - 1;
+        }
+        return r;
+    }
+
+    public static int sum(int a, int b, int c) {
+        int s = 0;
+        int i = 0;
+        while (a > i) {
+            if (i > b) {
+                s = s + c * i;
+            } else {
+                s = s - i;
+            }
+            i = i + 1;
+        }
+        return s + fac(b);
+    }
+
+    public static void main(String[] args) {
+        SPIM.printInt(fac(6));
+        SPIM.printChar('\n');
+        SPIM.printInt(sum(6, 2, 3));
+        SPIM.printChar('\n');
+    }
+
+}
@@ -0,0 +1,37 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+import spim.SPIM;
+
+// The same product is computed on both sides of a branch and again inside a
+// loop, where it is invariant. Compile with -s linear at -r 3 up to -r 18,
+// or with -s graph at -r 2 up to -r 18; prints 206.
+
+public class G {
+
+    public static int f(int x, int y) {
+        int a = x * y + 3;
+        int b = 0;
+        if (x > y) {
+            b = x * y + 3;
+        } else {
+            b = y * x - 1;
+        }
+        int s = 0;
+        int i = 0;
+        while (x > i) {
+            s = s + (x * y + 3) + (i * 4) + (i * 4);
+            i = i + 1;
+        }
+        return a + b + s;
+    }
+
+    public static int g(int x) {
+        return x * x + x * x;
+    }
+
+    public static void main(String[] args) {
+        SPIM.printInt(f(5, 3));
+        SPIM.printChar('\n');
+    }
+
+}
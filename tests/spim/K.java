@@ -0,0 +1,73 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+import spim.SPIM;
+
+// Constants that flow through branches and loops: poly() and count()
+// compute loop-invariant values from local constants, and mix() calls both
+// along with scale(), whose branch is decided by a constant. Compile with
+// -s linear at -r 3 up to -r 18, or with -s graph at -r 2 up to -r 18;
+// prints 630, 45 and 117, one per line.
+
+public class K {
+
+    public static int poly(int n) {
+        int a = 3;
+        int b = 4;
+        int s = 0;
+        int i = 0;
+        while (n > i) {
+            int c = a * b + 2;
+            if (c > 10) {
+                s = s + c * i;
+            } else {
+                s = s - i;
+            }
+            i = i + 1;
+        }
+        return s;
+    }
+
+    public static int scale(int x) {
+        int k = 8;
+        int m = k * k - 60;
+        int r = 0;
+        if (m == 4) {
+        } else {
+            r = x * 1000;
+        }
+        return x * m + r;
+    }
+
+    public static int count(int n) {
+        int step = 2;
+        int t = 0;
+        int j = 0;
+        while (n > j) {
+            t = t + step * 3 - 1;
+            j = j + step - 1;
+        }
+        return t;
+    }
+
+    public static int mix(int a, int b) {
+        int z = 0;
+        int w = 5;
+        if (a > b) {
+            w = 5;
+            z = a - b;
+        } else {
+            z = b - a;
+        }
+        return z * w + scale(w) + poly(3) + count(w);
+    }
+
+    public static void main(String[] args) {
+        SPIM.printInt(poly(10));
+        SPIM.printChar('\n');
+        SPIM.printInt(count(9));
+        SPIM.printChar('\n');
+        SPIM.printInt(mix(3, 9));
+        SPIM.printChar('\n');
+    }
+
+}
@@ -0,0 +1,60 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+import spim.SPIM;
+
+// Loops whose bodies compute invariant expressions: a product of two
+// parameters in sum(), the same inside a nested loop in nest(), and one in
+// a loop that is only reached on one branch in cond(). Compile with -s
+// linear at -r 3 up to -r 18, or with -s graph at -r 2 up to -r 18; prints
+// 150, 168 and 1, one per line.
+
+public class L {
+
+    public static int sum(int n, int a, int b) {
+        int s = 0;
+        int i = 0;
+        while (n > i) {
+            s = s + a * b + 3;
+            i = i + 1;
+        }
+        return s;
+    }
+
+    public static int nest(int n, int a) {
+        int s = 0;
+        int i = 0;
+        while (n > i) {
+            int k = 0;
+            while (n > k) {
+                s = s + a * 2 + i * a;
+                k = k + 1;
+            }
+            i = i + 1;
+        }
+        return s;
+    }
+
+    public static int cond(int n, int a) {
+        int s = 1;
+        int i = 0;
+        if (a > 0) {
+            return 2;
+        } else {
+            while (n > i) {
+                s = s + a * a;
+                i = i + 1;
+            }
+        }
+        return s;
+    }
+
+    public static void main(String[] args) {
+        SPIM.printInt(sum(10, 3, 4));
+        SPIM.printChar('\n');
+        SPIM.printInt(nest(4, 3));
+        SPIM.printChar('\n');
+        SPIM.printInt(cond(5, 0));
+        SPIM.printChar('\n');
+    }
+
+}
@@ -0,0 +1,31 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+import spim.SPIM;
+
+// Nested loops with invariants hoisted into both preheaders, which leaves
+// more values live through the inner loop than there are registers at
+// -r 5 and below. Compile with -s linear or -s graph, at -r 3 up to -r 8;
+// prints 168.
+
+public class NestedLoops {
+
+    public static int nest(int n, int a) {
+        int s = 0;
+        int i = 0;
+        while (n > i) {
+            int k = 0;
+            while (n > k) {
+                s = s + a * 2 + i * a;
+                k = k + 1;
+            }
+            i = i + 1;
+        }
+        return s;
+    }
+
+    public static void main(String[] args) {
+        SPIM.printInt(nest(4, 3));
+        SPIM.printChar('\n');
+    }
+
+}
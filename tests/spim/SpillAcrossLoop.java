@@ -0,0 +1,26 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+import spim.SPIM;
+
+// A value spilled across a loop, which the linear scan allocator must store
+// before the loop's branch and not reload at the loop head on every
+// iteration. Compile with -s linear -r 3 (and -r 4); prints 39208.
+
+public class SpillAcrossLoop {
+
+    public static int f(int p) {
+        p = p - (p * p + (p + p));
+        p = p + (p + 0) - (p - p + (p - 4));
+        int i = 0;
+        while (4 > i) {
+            i = i + 1;
+        }
+        return (3 + p - (p + p)) * ((p + p) * p);
+    }
+
+    public static void main(String[] args) {
+        SPIM.printInt(f(5));
+        SPIM.printChar('\n');
+    }
+
+}
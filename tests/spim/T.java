@@ -0,0 +1,41 @@
+// Copyright 2013 Bill Campbell, Swami Iyer and Bahar Akbal-Delibas
+
+import spim.SPIM;
+
+// A loop whose condition is a constant (never() does not enter it) and a
+// loop with a branch on a constant in its body (loopConst()). Compile with
+// -s linear at -r 3 up to -r 18, or with -s graph at -r 2 up to -r 18;
+// prints 28 and 5, one per line.
+
+public class T {
+
+    public static int never(int a) {
+        int k = 0;
+        int s = a;
+        while (k > 0) {
+            s = s + 1;
+        }
+        return s;
+    }
+
+    public static int loopConst(int n) {
+        int s = 0;
+        int i = 0;
+        int d = 7;
+        while (n > i) {
+            if (d <= 7) {
+                s = s + d;
+            }
+            i = i + 1;
+        }
+        return s;
+    }
+
+    public static void main(String[] args) {
+        SPIM.printInt(loopConst(4));
+        SPIM.printChar('\n');
+        SPIM.printInt(never(5));
+        SPIM.printChar('\n');
+    }
+
+}